@@ -0,0 +1,122 @@
+package com.benchmarks;
+
+import com.analyzer.CompilerPipeline;
+import com.analyzer.DeclarationChecker;
+import com.analyzer.LexicalAnalyzer;
+import com.analyzer.SemanticAnalyzer;
+import com.analyzer.SyntaxAnalyzer;
+import com.model.CompilationResult;
+import com.model.Phase;
+import com.model.Token;
+import com.model.TokenBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One benchmark per analysis phase over generated sources. Besides the invocation rate, the
+ * tokens and declarations each invocation got through are reported as tokens/s and
+ * declarations/s; run with {@code -prof gc} for the allocation rate of each phase.
+ * The syntax and semantic phases stop at the first error, so with a non-zero error rate they
+ * only get through the prefix before it, which the counters reflect.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AnalyzerBenchmark {
+    @Param({"1000", "100000"})
+    public int declarations;
+
+    @Param({"MIXED", "NUMERIC", "TEXT"})
+    public DeclarationGenerator.Mix mix;
+
+    @Param({"8", "64"})
+    public int literalLength;
+
+    @Param({"0", "0.001"})
+    public double errorRate;
+
+    private String source;
+    private ArrayList<Token> tokens;
+    private long tokenCount;
+    private CompilationResult syntaxResult;
+    private CompilationResult semanticResult;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long tokens;
+        public long declarations;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            tokens = 0;
+            declarations = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void generate() {
+        source = new DeclarationGenerator(mix, literalLength, errorRate, 42).generate(declarations);
+        tokens = LexicalAnalyzer.tokenize(source);
+        tokenCount = tokens.size();
+        syntaxResult = DeclarationChecker.check(tokens, Phase.SYNTAX);
+        semanticResult = DeclarationChecker.check(tokens, Phase.SEMANTIC);
+    }
+
+    @Benchmark
+    public ArrayList<Token> lexical(Counters counters) {
+        ArrayList<Token> result = LexicalAnalyzer.tokenize(source);
+        counters.tokens += tokenCount;
+        counters.declarations += declarations;
+        return result;
+    }
+
+    @Benchmark
+    public TokenBuffer lexicalToBuffer(Counters counters) {
+        TokenBuffer result = LexicalAnalyzer.tokenizeToBuffer(source);
+        counters.tokens += tokenCount;
+        counters.declarations += declarations;
+        return result;
+    }
+
+    @Benchmark
+    public boolean syntax(Counters counters) {
+        boolean valid = SyntaxAnalyzer.analyze(tokens);
+        counters.tokens += syntaxResult.getTokenCount();
+        counters.declarations += syntaxResult.getDeclarationCount();
+        return valid;
+    }
+
+    @Benchmark
+    public boolean semantic(Counters counters) {
+        boolean valid = SemanticAnalyzer.analyze(tokens);
+        counters.tokens += semanticResult.getTokenCount();
+        counters.declarations += semanticResult.getDeclarationCount();
+        return valid;
+    }
+
+    // lexing and both checks fused into one pass, as MiniCompiler runs them
+    @Benchmark
+    public CompilationResult pipeline(Counters counters) {
+        CompilationResult result = CompilerPipeline.compile(source);
+        counters.tokens += result.getTokenCount();
+        counters.declarations += result.getDeclarationCount();
+        return result;
+    }
+}
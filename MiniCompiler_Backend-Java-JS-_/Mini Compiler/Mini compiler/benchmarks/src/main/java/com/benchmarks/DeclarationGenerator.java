@@ -0,0 +1,130 @@
+package com.benchmarks;
+
+import java.util.SplittableRandom;
+
+/**
+ * Builds reproducible declaration sources. The type mix, literal length and the share of
+ * broken declarations can be varied; the same seed always gives the same text.
+ */
+public class DeclarationGenerator {
+    public enum Mix {
+        // every data type equally often
+        MIXED("int", "float", "double", "char", "boolean", "String", "long", "short", "byte"),
+        NUMERIC("int", "long", "short", "byte", "float", "double"),
+        TEXT("String", "char");
+
+        private final String[] types;
+
+        Mix(String... types) {
+            this.types = types;
+        }
+    }
+
+    private static final String LETTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+    private final Mix mix;
+    private final int literalLength;
+    private final double errorRate;
+    private final SplittableRandom random;
+
+    public DeclarationGenerator(Mix mix, int literalLength, double errorRate, long seed) {
+        this.mix = mix;
+        this.literalLength = Math.max(1, literalLength);
+        this.errorRate = errorRate;
+        this.random = new SplittableRandom(seed);
+    }
+
+    public String generate(int declarations) {
+        StringBuilder out = new StringBuilder(declarations * (literalLength + 16));
+        for (int i = 0; i < declarations; i++) {
+            if (random.nextDouble() < errorRate) {
+                appendBroken(out, i);
+            } else {
+                appendDeclaration(out, i);
+            }
+            out.append(random.nextInt(4) == 0 ? '\n' : ' ');
+        }
+        return out.toString();
+    }
+
+    private void appendDeclaration(StringBuilder out, int index) {
+        String type = mix.types[random.nextInt(mix.types.length)];
+        out.append(type).append(' ');
+        appendIdentifier(out, index);
+        // one in eight declarations has no initializer
+        if (random.nextInt(8) != 0) {
+            out.append(" = ");
+            appendValue(out, type);
+        }
+        out.append(';');
+    }
+
+    // rotates through a lexical, a syntax and a semantic error
+    private void appendBroken(StringBuilder out, int index) {
+        switch (index % 3) {
+            case 0:
+                out.append("int ");
+                appendIdentifier(out, index);
+                out.append(" = 1#2;");
+                break;
+            case 1:
+                out.append("int ");
+                appendIdentifier(out, index);
+                out.append(" = = 5;");
+                break;
+            default:
+                out.append("int ");
+                appendIdentifier(out, index);
+                out.append(" = \"text\";");
+                break;
+        }
+    }
+
+    private static void appendIdentifier(StringBuilder out, int index) {
+        out.append('v').append(Integer.toString(index, 36));
+    }
+
+    private void appendValue(StringBuilder out, String type) {
+        switch (type) {
+            case "int":
+                appendDigits(out, Math.min(literalLength, 9));
+                break;
+            case "long":
+                appendDigits(out, Math.min(literalLength, 18));
+                break;
+            case "short":
+                appendDigits(out, Math.min(literalLength, 4));
+                break;
+            case "byte":
+                appendDigits(out, Math.min(literalLength, 2));
+                break;
+            case "float":
+            case "double":
+                appendDigits(out, Math.max(1, literalLength / 2));
+                out.append('.');
+                appendDigits(out, Math.max(1, literalLength - literalLength / 2));
+                break;
+            case "boolean":
+                out.append(random.nextBoolean() ? "true" : "false");
+                break;
+            case "char":
+                out.append('\'').append(LETTERS.charAt(random.nextInt(LETTERS.length()))).append('\'');
+                break;
+            default:
+                out.append('"');
+                for (int i = 0; i < literalLength; i++) {
+                    // spaces inside literals exercise the quote handling in the lexer
+                    out.append(random.nextInt(8) == 0 ? ' ' : LETTERS.charAt(random.nextInt(LETTERS.length())));
+                }
+                out.append('"');
+                break;
+        }
+    }
+
+    private void appendDigits(StringBuilder out, int count) {
+        out.append((char) ('1' + random.nextInt(9)));
+        for (int i = 1; i < count; i++) {
+            out.append((char) ('0' + random.nextInt(10)));
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.analyzer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.model.CompilationResult;
+import com.model.Diagnostics;
+import com.model.Token;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.PlainDocument;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Random edits to a document, forwarded line by line as the editor does, must leave the
+ * incremental analysis with the verdicts and result of a full analysis of the text, errors
+ * included.
+ */
+class IncrementalAnalyzerTest {
+    private static final String[] FRAGMENTS = {
+            "int a = 1;", "int b = a + 2;", "double d = 1.5e-3;", "String s = \"hi\";", "char c = 'x';",
+            "boolean f = true;", "long n = 9;", "int a = 2;", "int e = x;", "String t = 5;", "char w = 'ab';",
+            "int = 3;", "int g 4;", "float h = ;", "int i = (1 + 2) * 3;", "byte k = 300;", "int m = @;",
+            "\"open", ";", "=", " ", "\t", "\n", "\n\n", "int p =\n 7;", "int q = 1;\nint q = 2;",
+    };
+
+    @Test
+    void randomEditsMatchFullAnalysis() throws BadLocationException {
+        Random random = new Random(7);
+        for (int documentIndex = 0; documentIndex < 200; documentIndex++) {
+            IncrementalAnalyzer analysis = new IncrementalAnalyzer();
+            PlainDocument document = new PlainDocument();
+            document.addDocumentListener(new DocumentListener() {
+                public void insertUpdate(DocumentEvent e) { forward(analysis, e); }
+                public void removeUpdate(DocumentEvent e) { forward(analysis, e); }
+                public void changedUpdate(DocumentEvent e) {}
+            });
+            for (int step = 0; step < 40; step++) {
+                edit(document, random);
+                // results asked for only now and then leave several edits to invalidate at once
+                if (random.nextInt(3) == 0) continue;
+                String text = document.getText(0, document.getLength());
+                String where = "document " + documentIndex + ", step " + step + ": [" + text + "]";
+                ArrayList<Token> tokens = LexicalAnalyzer.tokenize(text);
+                assertEquals(tokens.size(), analysis.getTokenCount(), where);
+                assertEquals(LexicalAnalyzer.isValidLexically(tokens), analysis.isValidLexically(), where);
+                assertEquals(SyntaxAnalyzer.analyze(tokens), analysis.isValidSyntax(), where);
+                assertEquals(describe(fullAnalysis(text)), describe(analysis.getResult()), where);
+            }
+        }
+    }
+
+    private static void edit(Document document, Random random) throws BadLocationException {
+        int length = document.getLength();
+        if (length > 0 && random.nextInt(3) == 0) {
+            int offset = random.nextInt(length);
+            document.remove(offset, 1 + random.nextInt(Math.min(length - offset, 30)));
+        } else {
+            String fragment = FRAGMENTS[random.nextInt(FRAGMENTS.length)];
+            document.insertString(length == 0 ? 0 : random.nextInt(length + 1), fragment, null);
+        }
+    }
+
+    // the editor's forwarding of an edit: the lines it replaced, without their line breaks
+    private static void forward(IncrementalAnalyzer analysis, DocumentEvent e) {
+        Document document = e.getDocument();
+        Element root = document.getDefaultRootElement();
+        DocumentEvent.ElementChange change = e.getChange(root);
+        int first;
+        int removed;
+        Element[] added;
+        if (change != null) {
+            first = change.getIndex();
+            removed = change.getChildrenRemoved().length;
+            added = change.getChildrenAdded();
+        } else {
+            first = root.getElementIndex(e.getOffset());
+            removed = 1;
+            added = new Element[] { root.getElement(first) };
+        }
+        List<String> lines = new ArrayList<>(added.length);
+        try {
+            for (Element line : added) {
+                int start = line.getStartOffset();
+                int end = Math.min(line.getEndOffset(), document.getLength());
+                String text = document.getText(start, end - start);
+                lines.add(text.endsWith("\n") ? text.substring(0, text.length() - 1) : text);
+            }
+        } catch (BadLocationException ex) {
+            throw new IllegalStateException(ex);
+        }
+        analysis.replaceLines(first, removed, lines);
+    }
+
+    private static CompilationResult fullAnalysis(String text) {
+        Diagnostics diagnostics = new Diagnostics();
+        CompilationResult result = CompilerPipeline.compile(text, diagnostics);
+        if (!diagnostics.isEmpty()) diagnostics.resolvePositions(text);
+        return result;
+    }
+
+    private static String describe(CompilationResult result) {
+        StringBuilder sb = new StringBuilder()
+                .append(result.getFailedPhase()).append('@').append(result.getErrorOffset())
+                .append(": ").append(result.getMessage())
+                .append(", tokens ").append(result.getTokenCount())
+                .append(", declarations ").append(result.getDeclarationCount());
+        Diagnostics diagnostics = result.getDiagnostics();
+        if (diagnostics != null) {
+            sb.append(", ").append(diagnostics.getTotal()).append(" error(s)");
+            for (int i = 0; i < diagnostics.size(); i++) {
+                sb.append("\n  ").append(diagnostics.offset(i)).append(' ').append(diagnostics.format(i));
+            }
+        }
+        return sb.toString();
+    }
+}
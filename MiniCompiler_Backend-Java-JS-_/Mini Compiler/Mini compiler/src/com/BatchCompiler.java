@@ -0,0 +1,329 @@
+package com;
+
+import com.analyzer.ProjectAnalyzer;
+import com.analyzer.ResultCache;
+import com.analyzer.SymbolEmitter;
+import com.model.CompilationResult;
+import com.model.PhaseMetrics;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Non-interactive mode: analyzes every file named by the arguments on a bounded pool and writes
+ * one JSON line per file to stdout, in argument order. Directories are searched recursively for
+ * .txt files and arguments containing glob characters are matched below their fixed prefix.
+ * The source echo goes to stderr so stdout stays machine-readable. With --symbols, every file
+ * that passes also gets its symbol table written next to it as FILE.sym; it cannot be combined
+ * with --cache, since a cached result would not write the table. With --project, the
+ * files form one program: a variable declared in one file may not be declared in another.
+ */
+public class BatchCompiler {
+    public static final int EXIT_OK = 0;
+    public static final int EXIT_FAILED = 1;
+    public static final int EXIT_ERROR = 2;
+
+    private static final String USAGE =
+            "Usage: MiniCompiler [--no-echo] [--stats] [--jobs N] [--cache DIR] [--symbols] [--project] <file|directory|glob>...";
+
+    private static class FileResult {
+        private final Path path;
+        private final CompilationResult result;
+        private final String error;
+        private final long nanos;
+        private final PhaseMetrics metrics;
+        private final Path symbols;
+
+        FileResult(Path path, CompilationResult result, String error, long nanos, PhaseMetrics metrics,
+                   Path symbols) {
+            this.path = path;
+            this.result = result;
+            this.error = error;
+            this.nanos = nanos;
+            this.metrics = metrics;
+            this.symbols = symbols;
+        }
+    }
+
+    public static int run(String[] args) {
+        boolean echo = true;
+        boolean stats = false;
+        boolean symbols = false;
+        boolean project = false;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        Path cacheDirectory = null;
+        List<String> patterns = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--no-echo")) {
+                echo = false;
+            } else if (args[i].equals("--stats")) {
+                stats = true;
+            } else if (args[i].equals("--jobs") && i + 1 < args.length) {
+                try {
+                    jobs = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    jobs = 0;
+                }
+                if (jobs < 1) {
+                    System.err.println(USAGE);
+                    return EXIT_ERROR;
+                }
+            } else if (args[i].equals("--symbols")) {
+                symbols = true;
+            } else if (args[i].equals("--project")) {
+                project = true;
+            } else if (args[i].equals("--cache") && i + 1 < args.length) {
+                cacheDirectory = Paths.get(args[++i]);
+            } else if (args[i].startsWith("--")) {
+                System.err.println(USAGE);
+                return EXIT_ERROR;
+            } else {
+                patterns.add(args[i]);
+            }
+        }
+        // a file's result depends on the rest of the project, so it can be neither cached nor emitted alone;
+        // a cached result would skip writing the symbol table
+        if (patterns.isEmpty() || (project && symbols) || (cacheDirectory != null && (project || symbols))) {
+            System.err.println(USAGE);
+            return EXIT_ERROR;
+        }
+
+        int exitCode = EXIT_OK;
+        List<Path> files = new ArrayList<>();
+        for (String pattern : patterns) {
+            try {
+                List<Path> matched = expand(pattern);
+                if (matched.isEmpty()) {
+                    System.out.println(errorLine(pattern, "No files matched"));
+                    exitCode = EXIT_ERROR;
+                }
+                files.addAll(matched);
+            } catch (IOException | RuntimeException e) {
+                System.out.println(errorLine(pattern, describe(e)));
+                exitCode = EXIT_ERROR;
+            }
+        }
+
+        // a file named twice would clash with itself
+        if (project) files = new ArrayList<>(new LinkedHashSet<>(files));
+
+        ResultCache cache = null;
+        if (cacheDirectory != null) {
+            try {
+                cache = new ResultCache(cacheDirectory, ResultCache.DEFAULT_MEMORY_ENTRIES);
+            } catch (IOException e) {
+                System.err.println("Cache disabled: " + describe(e));
+            }
+        }
+
+        // the JDK this targets has no virtual threads, so the pool is plain and bounded
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(jobs, Math.max(1, files.size())));
+        try {
+            List<Future<FileResult>> results = new ArrayList<>(files.size());
+            ResultCache shared = cache;
+            boolean measure = stats;
+            boolean emit = symbols;
+            ProjectAnalyzer projectAnalyzer = project ? new ProjectAnalyzer(files) : null;
+            for (int i = 0; i < files.size(); i++) {
+                Path file = files.get(i);
+                int index = i;
+                results.add(pool.submit(() -> projectAnalyzer != null
+                        ? analyze(projectAnalyzer, index, file)
+                        : analyze(file, shared, measure, emit)));
+            }
+            PhaseMetrics total = new PhaseMetrics();
+            if (projectAnalyzer != null) {
+                // duplicates between files are only known once every file is in
+                List<FileResult> fileResults = new ArrayList<>(files.size());
+                for (Future<FileResult> future : results) fileResults.add(get(future));
+                for (FileResult fileResult : finish(projectAnalyzer, fileResults)) {
+                    exitCode = report(fileResult, echo, total, exitCode);
+                }
+            } else {
+                for (Future<FileResult> future : results) {
+                    exitCode = report(get(future), echo, total, exitCode);
+                }
+            }
+            if (stats) System.err.print(total.format());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return EXIT_ERROR;
+        } finally {
+            pool.shutdownNow();
+            closeCache(cache);
+        }
+        System.out.flush();
+        return exitCode;
+    }
+
+    private static FileResult get(Future<FileResult> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // prints one result and returns the exit code so far
+    private static int report(FileResult fileResult, boolean echo, PhaseMetrics total, int exitCode) {
+        if (echo) echo(fileResult.path, System.err);
+        System.out.println(toJson(fileResult));
+        if (fileResult.metrics != null) total.add(fileResult.metrics);
+        if (fileResult.error != null) return EXIT_ERROR;
+        if (!fileResult.result.isSuccessful() && exitCode == EXIT_OK) return EXIT_FAILED;
+        return exitCode;
+    }
+
+    private static FileResult analyze(ProjectAnalyzer project, int index, Path file) {
+        long start = System.nanoTime();
+        try {
+            return new FileResult(file, project.analyze(index), null, System.nanoTime() - start, null, null);
+        } catch (IOException | RuntimeException e) {
+            return new FileResult(file, null, describe(e), System.nanoTime() - start, null, null);
+        }
+    }
+
+    private static List<FileResult> finish(ProjectAnalyzer project, List<FileResult> fileResults) {
+        CompilationResult[] results = new CompilationResult[fileResults.size()];
+        for (int i = 0; i < results.length; i++) results[i] = fileResults.get(i).result;
+        long start = System.nanoTime();
+        try {
+            results = project.finish(results);
+        } catch (IOException | RuntimeException e) {
+            // a file changed or vanished in between; the duplicates can't be placed
+            List<FileResult> failed = new ArrayList<>(fileResults.size());
+            for (FileResult r : fileResults) {
+                failed.add(new FileResult(r.path, null, "Project check failed: " + describe(e), r.nanos, null, null));
+            }
+            return failed;
+        }
+        long nanos = System.nanoTime() - start;
+        List<FileResult> merged = new ArrayList<>(fileResults.size());
+        for (int i = 0; i < results.length; i++) {
+            FileResult r = fileResults.get(i);
+            merged.add(r.error != null ? r
+                    : new FileResult(r.path, results[i], null, r.nanos + (results[i] != r.result ? nanos : 0), null, null));
+        }
+        return merged;
+    }
+
+    private static FileResult analyze(Path file, ResultCache cache, boolean stats, boolean emit) {
+        long start = System.nanoTime();
+        PhaseMetrics metrics = stats ? new PhaseMetrics() : null;
+        try {
+            if (emit) {
+                Path symbols = file.resolveSibling(file.getFileName() + ".sym");
+                CompilationResult result = SymbolEmitter.compile(file, symbols, metrics);
+                return new FileResult(file, result, null, System.nanoTime() - start, metrics,
+                        result.isSuccessful() ? symbols : null);
+            }
+            CompilationResult result = cache != null
+                    ? cache.compile(file, path -> MiniCompiler.compile(path, metrics))
+                    : MiniCompiler.compile(file, metrics);
+            return new FileResult(file, result, null, System.nanoTime() - start, metrics, null);
+        } catch (IOException | RuntimeException e) {
+            return new FileResult(file, null, describe(e), System.nanoTime() - start, metrics, null);
+        }
+    }
+
+    private static void closeCache(ResultCache cache) {
+        if (cache == null) return;
+        System.err.println("Cache: " + cache.getHits() + " memory hits, " + cache.getDiskHits() + " disk hits, "
+                + cache.getMisses() + " misses, " + cache.getEvictions() + " evictions, "
+                + cache.getDiskEvictions() + " disk evictions");
+        try {
+            cache.close();
+        } catch (IOException e) {
+            System.err.println("Could not close the cache: " + describe(e));
+        }
+    }
+
+    static String describe(Exception e) {
+        if (e instanceof NoSuchFileException) return "No such file";
+        if (e instanceof AccessDeniedException) return "Access denied";
+        return e.getMessage() != null ? e.getMessage() : e.toString();
+    }
+
+    private static List<Path> expand(String pattern) throws IOException {
+        int glob = firstGlobChar(pattern);
+        if (glob < 0) {
+            Path path = Paths.get(pattern);
+            if (!Files.isDirectory(path)) return List.of(path);
+            return walk(path, path.getFileSystem().getPathMatcher("glob:**.txt"));
+        }
+        // search below the last separator before the first glob character
+        int cut = Math.max(pattern.lastIndexOf('/', glob), pattern.lastIndexOf('\\', glob));
+        Path base = Paths.get(cut < 0 ? "" : pattern.substring(0, cut + 1));
+        return walk(base, FileSystems.getDefault().getPathMatcher("glob:" + pattern.substring(cut + 1)));
+    }
+
+    private static List<Path> walk(Path directory, PathMatcher matcher) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(p -> matcher.matches(directory.relativize(p)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    static int firstGlobChar(String pattern) {
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') return i;
+        }
+        return -1;
+    }
+
+    private static void echo(Path file, PrintStream out) {
+        try (InputStream in = Files.newInputStream(file)) {
+            out.println("File contents (" + file + "):");
+            in.transferTo(out);
+            out.println();
+        } catch (IOException e) {
+            // the result line already reports unreadable files
+        }
+    }
+
+    private static String toJson(FileResult r) {
+        StringBuilder json = new StringBuilder(128);
+        json.append("{\"file\":");
+        ResultJson.quote(json, r.path.toString());
+        json.append(',');
+        if (r.error != null) {
+            ResultJson.appendError(json, r.error);
+        } else {
+            ResultJson.appendResult(json, r.result);
+            if (r.metrics != null) ResultJson.appendMetrics(json, r.metrics);
+            if (r.symbols != null) {
+                json.append(",\"symbols\":");
+                ResultJson.quote(json, r.symbols.toString());
+            }
+        }
+        ResultJson.appendMillis(json, r.nanos);
+        return json.append('}').toString();
+    }
+
+    static String errorLine(String pattern, String message) {
+        StringBuilder json = new StringBuilder("{\"file\":");
+        ResultJson.quote(json, pattern);
+        json.append(',');
+        ResultJson.appendError(json, message);
+        return json.append('}').toString();
+    }
+}
@@ -0,0 +1,74 @@
+package com;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Minimal client for {@link CompileServer}: sends the contents of every file named on the
+ * command line at once and prints the JSON answers in argument order. Exit codes match the
+ * batch mode.
+ */
+public class CompileClient {
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int port = Integer.getInteger("minicompiler.port", CompileServer.DEFAULT_PORT);
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        URI uri = URI.create("http://localhost:" + port + "/compile");
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (String file : args) {
+            HttpRequest request;
+            try {
+                request = HttpRequest.newBuilder(uri)
+                        .header("Content-Type", "text/plain; charset=utf-8")
+                        .POST(HttpRequest.BodyPublishers.ofFile(Paths.get(file)))
+                        .build();
+            } catch (FileNotFoundException e) {
+                // reported in order below
+                responses.add(null);
+                continue;
+            }
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        int exitCode = BatchCompiler.EXIT_OK;
+        for (int i = 0; i < args.length; i++) {
+            CompletableFuture<HttpResponse<String>> future = responses.get(i);
+            if (future == null) {
+                System.out.println(BatchCompiler.errorLine(args[i], "No such file"));
+                exitCode = BatchCompiler.EXIT_ERROR;
+                continue;
+            }
+            HttpResponse<String> response;
+            try {
+                response = future.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof ConnectException) {
+                    System.err.println("Compile server not reachable on port " + port);
+                    System.exit(BatchCompiler.EXIT_ERROR);
+                    return;
+                }
+                // the file could not be read while sending
+                Throwable cause = e.getCause();
+                System.out.println(BatchCompiler.errorLine(args[i],
+                        BatchCompiler.describe(cause instanceof Exception ? (Exception) cause : e)));
+                exitCode = BatchCompiler.EXIT_ERROR;
+                continue;
+            }
+            System.out.println(response.body());
+            if (response.statusCode() != 200) {
+                exitCode = BatchCompiler.EXIT_ERROR;
+            } else if (!response.body().contains("\"status\":\"passed\"") && exitCode == BatchCompiler.EXIT_OK) {
+                exitCode = BatchCompiler.EXIT_FAILED;
+            }
+        }
+        System.exit(exitCode);
+    }
+}
@@ -0,0 +1,168 @@
+package com;
+
+import com.analyzer.CompilerPipeline;
+import com.model.CompilationResult;
+import com.model.Diagnostics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resident compile server on the loopback interface, so that checking a small file costs an
+ * HTTP round trip instead of a JVM start. Connections are kept alive, so a client can send
+ * its requests back to back on one connection.
+ *
+ *   POST /compile    the request body is the source, UTF-8
+ *   GET  /health     answers "ok"
+ *
+ * Every compile answers with one JSON object, the same fields as a batch result line. The
+ * server never reads files itself: any local process may connect, so it only sees what a
+ * client sends.
+ */
+public class CompileServer {
+    public static final int DEFAULT_PORT = 7878;
+
+    private final HttpServer server;
+    private final ExecutorService workers;
+
+    public CompileServer(int port, int threads) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        workers = Executors.newFixedThreadPool(threads);
+        server.setExecutor(workers);
+        server.createContext("/compile", this::compile);
+        server.createContext("/health", exchange -> respond(exchange, 200, "ok"));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        serve(port);
+    }
+
+    public static void serve(int port) throws IOException {
+        CompileServer server = new CompileServer(port, Runtime.getRuntime().availableProcessors());
+        // load and JIT the analyzers before the first real request
+        for (int i = 0; i < 1000; i++) {
+            CompilerPipeline.compile("int x = 5; String s = \"a\"; char c = 'c'; boolean b = true; double d = 1.5;");
+        }
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+        System.out.println("Compile server listening on http://localhost:" + server.getPort());
+    }
+
+    public int getPort() { return server.getAddress().getPort(); }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        workers.shutdownNow();
+    }
+
+    private void compile(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestMethod().equals("POST")) {
+            exchange.getResponseHeaders().set("Allow", "POST");
+            respond(exchange, 405, "");
+            return;
+        }
+        long start = System.nanoTime();
+        StringBuilder json = new StringBuilder(128).append('{');
+        int status = 200;
+        try {
+            CompilationResult result;
+            LineRecorder reader = new LineRecorder(
+                    new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8));
+            Diagnostics diagnostics = new Diagnostics();
+            try (reader) {
+                result = CompilerPipeline.compile(reader, null, diagnostics);
+            }
+            // the body cannot be read twice, so positions come from the line lengths seen
+            if (!diagnostics.isEmpty()) {
+                int[] lengths = reader.lineLengths();
+                diagnostics.resolvePositions(lengths, lengths.length);
+            }
+            ResultJson.appendResult(json, result);
+        } catch (IOException | RuntimeException e) {
+            status = 400;
+            ResultJson.appendError(json, BatchCompiler.describe(e));
+        }
+        ResultJson.appendMillis(json, System.nanoTime() - start);
+        respond(exchange, status, json.append('}').toString());
+    }
+
+    /**
+     * Remembers the length of every line read through it. Lines end at LF, CRLF or a lone CR; the
+     * CR of a CRLF counts toward its line, so that every break is one char wide as
+     * {@link Diagnostics#resolvePositions(int[], int)} expects.
+     */
+    private static final class LineRecorder extends FilterReader {
+        private int[] lengths = new int[64];
+        private int count;
+        private int current;
+        // the last char read was a CR, which may be the first half of a CRLF
+        private boolean afterCr;
+
+        LineRecorder(Reader in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = in.read();
+            if (c >= 0) accept((char) c);
+            return c;
+        }
+
+        @Override
+        public int read(char[] buf, int off, int len) throws IOException {
+            int n = in.read(buf, off, len);
+            for (int i = off; i < off + n; i++) accept(buf[i]);
+            return n;
+        }
+
+        private void accept(char c) {
+            if (c == '\n' && afterCr) {
+                lengths[count - 1]++;
+            } else if (c == '\n' || c == '\r') {
+                endLine();
+            } else {
+                current++;
+            }
+            afterCr = c == '\r';
+        }
+
+        // of the lines seen so far, the last one included
+        int[] lineLengths() {
+            int[] all = Arrays.copyOf(lengths, count + 1);
+            all[count] = current;
+            return all;
+        }
+
+        private void endLine() {
+            if (count == lengths.length) lengths = Arrays.copyOf(lengths, count * 2);
+            lengths[count++] = current;
+            current = 0;
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                body.startsWith("{") ? "application/json" : "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
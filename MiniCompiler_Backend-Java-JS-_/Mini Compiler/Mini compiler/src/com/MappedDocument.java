@@ -0,0 +1,322 @@
+package com;
+
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.AttributeSet;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.TabExpander;
+import javax.swing.text.Utilities;
+import javax.swing.text.View;
+import javax.swing.undo.UndoableEdit;
+import java.awt.Container;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+/**
+ * Read-only document over a memory-mapped file, for files too large to copy onto the heap.
+ * Each byte is shown as one char (ISO-8859-1), which is exact for ASCII sources; the analyzers
+ * decode in the platform charset, so other files may show different chars and columns. Lines
+ * end at LF, CRLF or a lone CR, as the analyzers split them, and of each line only its start
+ * offset is kept; line elements are made when asked for. Shown by a {@link LineView}, which
+ * only ever touches, and lexes, the lines it paints.
+ */
+final class MappedDocument extends AbstractDocument {
+    private static final int SCAN_STEP = 1 << 20;
+    private static final int TAB_SIZE = 8;
+
+    private final Path path;
+    private final int size;
+    private final int[] lineStarts;
+    private final int lineCount;
+    // width of the longest line in columns, with tabs expanded
+    private final int longestLine;
+    private final boolean ascii;
+    private final Element root = new LineRoot();
+
+    private MappedDocument(Path path, MappedContent content, int[] lineStarts, int lineCount, int longestLine,
+                           boolean ascii) {
+        super(content);
+        this.path = path;
+        this.size = content.size;
+        this.lineStarts = lineStarts;
+        this.lineCount = lineCount;
+        this.longestLine = longestLine;
+        this.ascii = ascii;
+    }
+
+    /**
+     * Maps the file and finds its line starts, reporting progress in percent; returns null when
+     * cancelled answers true. Files of 2 GB and more do not fit a document's int offsets.
+     */
+    static MappedDocument map(Path path, IntConsumer progress, BooleanSupplier cancelled) throws IOException {
+        MappedByteBuffer bytes;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() >= Integer.MAX_VALUE) {
+                throw new IOException("File is too large to display: " + path.getFileName());
+            }
+            // the mapping stays valid after the channel is closed
+            bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        int size = bytes.capacity();
+        int[] starts = new int[1024];
+        int count = 1;
+        int column = 0;
+        int longest = 0;
+        byte previous = 0;
+        boolean ascii = true;
+        for (int from = 0; from < size; from += SCAN_STEP) {
+            if (cancelled.getAsBoolean()) return null;
+            int to = Math.min(size, from + SCAN_STEP);
+            for (int i = from; i < to; i++) {
+                byte b = bytes.get(i);
+                // a CRLF's line starts after its LF, which moves the start the CR set
+                if (b == '\n' && previous == '\r') {
+                    starts[count - 1] = i + 1;
+                } else if (b == '\n' || b == '\r') {
+                    if (count == starts.length) starts = Arrays.copyOf(starts, count * 2);
+                    starts[count++] = i + 1;
+                    longest = Math.max(longest, column);
+                    column = 0;
+                } else {
+                    column = b == '\t' ? (column / TAB_SIZE + 1) * TAB_SIZE : column + 1;
+                }
+                previous = b;
+                ascii &= b >= 0;
+            }
+            progress.accept((int) (to * 100L / size));
+        }
+        return new MappedDocument(path, new MappedContent(bytes, size), starts, count, Math.max(longest, column),
+                ascii);
+    }
+
+    Path getPath() { return path; }
+
+    // false when some byte is not ASCII, and so may stand for another char than the one shown
+    boolean isAscii() { return ascii; }
+
+    @Override
+    public Element getDefaultRootElement() {
+        return root;
+    }
+
+    @Override
+    public Element getParagraphElement(int pos) {
+        return root.getElement(root.getElementIndex(pos));
+    }
+
+    // the bytes, plus the trailing '\n' every document content ends with
+    private static final class MappedContent implements AbstractDocument.Content {
+        private final MappedByteBuffer bytes;
+        private final int size;
+
+        MappedContent(MappedByteBuffer bytes, int size) {
+            this.bytes = bytes;
+            this.size = size;
+        }
+
+        @Override
+        public Position createPosition(int offset) {
+            // nothing is ever inserted or removed, so positions never move
+            return () -> offset;
+        }
+
+        @Override
+        public int length() {
+            return size + 1;
+        }
+
+        @Override
+        public UndoableEdit insertString(int where, String str) throws BadLocationException {
+            throw new BadLocationException("The document is read-only", where);
+        }
+
+        @Override
+        public UndoableEdit remove(int where, int nitems) throws BadLocationException {
+            throw new BadLocationException("The document is read-only", where);
+        }
+
+        @Override
+        public String getString(int where, int len) throws BadLocationException {
+            Segment text = new Segment();
+            getChars(where, len, text);
+            return text.toString();
+        }
+
+        @Override
+        public void getChars(int where, int len, Segment txt) throws BadLocationException {
+            if (where < 0 || len < 0 || where > size + 1 - len) {
+                throw new BadLocationException("Invalid range", where);
+            }
+            int n = Math.min(len, size - where);
+            byte[] raw = new byte[n];
+            bytes.get(where, raw);
+            char[] chars = new char[len];
+            for (int i = 0; i < n; i++) chars[i] = (char) (raw[i] & 0xff);
+            if (n < len) chars[n] = '\n';
+            txt.array = chars;
+            txt.offset = 0;
+            txt.count = len;
+        }
+    }
+
+    private final class LineRoot implements Element {
+        @Override public javax.swing.text.Document getDocument() { return MappedDocument.this; }
+        @Override public Element getParentElement() { return null; }
+        @Override public String getName() { return ParagraphElementName; }
+        @Override public AttributeSet getAttributes() { return SimpleAttributeSet.EMPTY; }
+        @Override public int getStartOffset() { return 0; }
+        @Override public int getEndOffset() { return size + 1; }
+        @Override public int getElementCount() { return lineCount; }
+        @Override public boolean isLeaf() { return false; }
+
+        @Override
+        public int getElementIndex(int offset) {
+            int i = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+            // between two starts: the line that starts before offset
+            return Math.max(0, i >= 0 ? i : -i - 2);
+        }
+
+        @Override
+        public Element getElement(int index) {
+            return index >= 0 && index < lineCount ? new Line(index) : null;
+        }
+    }
+
+    private final class Line implements Element {
+        private final int index;
+
+        Line(int index) {
+            this.index = index;
+        }
+
+        @Override public javax.swing.text.Document getDocument() { return MappedDocument.this; }
+        @Override public Element getParentElement() { return root; }
+        @Override public String getName() { return ContentElementName; }
+        @Override public AttributeSet getAttributes() { return SimpleAttributeSet.EMPTY; }
+        @Override public int getStartOffset() { return lineStarts[index]; }
+        @Override public int getEndOffset() { return index + 1 < lineCount ? lineStarts[index + 1] : size + 1; }
+        @Override public int getElementIndex(int offset) { return -1; }
+        @Override public int getElementCount() { return 0; }
+        @Override public Element getElement(int index) { return null; }
+        @Override public boolean isLeaf() { return true; }
+    }
+
+    /**
+     * A row per line, like PlainView, but sized from what the scan found instead of by measuring
+     * every line, so showing a file costs the same whatever its length. Assumes a fixed-width
+     * font for the width of the longest line.
+     */
+    static final class LineView extends View implements TabExpander {
+        private final MappedDocument document;
+        private final SyntaxHighlighter highlighter = new SyntaxHighlighter();
+        private int tabBase;
+
+        LineView(Element root) {
+            super(root);
+            document = (MappedDocument) root.getDocument();
+        }
+
+        @Override
+        public float getPreferredSpan(int axis) {
+            FontMetrics metrics = metrics();
+            return axis == X_AXIS ? document.longestLine * metrics.charWidth('m') + 1
+                    : (float) document.lineCount * metrics.getHeight();
+        }
+
+        @Override
+        public void paint(Graphics g, Shape a) {
+            Rectangle alloc = a.getBounds();
+            Rectangle clip = g.getClipBounds();
+            tabBase = alloc.x;
+            FontMetrics metrics = metrics();
+            int height = metrics.getHeight();
+            int first = Math.max(0, (clip.y - alloc.y) / height);
+            int last = Math.min(document.lineCount - 1, (clip.y + clip.height - alloc.y) / height);
+            JTextComponent host = (JTextComponent) getContainer();
+            g.setFont(host.getFont());
+            g.setColor(host.getDisabledTextColor());
+            Segment text = new Segment();
+            for (int line = first; line <= last; line++) {
+                int start = lineText(line, text);
+                float y = alloc.y + line * height + metrics.getAscent();
+                if (host.isEnabled()) {
+                    highlighter.drawLine((Graphics2D) g, host, text, start, start, start + text.count, alloc.x, y, this);
+                } else {
+                    Utilities.drawTabbedText(text, (float) alloc.x, y, (Graphics2D) g, this, start);
+                }
+            }
+        }
+
+        @Override
+        public Shape modelToView(int pos, Shape a, Position.Bias b) throws BadLocationException {
+            if (pos < 0 || pos > document.getLength()) throw new BadLocationException("Invalid position", pos);
+            Rectangle alloc = a.getBounds();
+            tabBase = alloc.x;
+            int line = document.root.getElementIndex(pos);
+            int start = document.lineStarts[line];
+            Segment text = new Segment();
+            document.getText(start, pos - start, text);
+            FontMetrics metrics = metrics();
+            float x = Utilities.getTabbedTextWidth(text, metrics, (float) alloc.x, this, start);
+            return new Rectangle(alloc.x + (int) x, alloc.y + line * metrics.getHeight(), 1, metrics.getHeight());
+        }
+
+        @Override
+        public int viewToModel(float x, float y, Shape a, Position.Bias[] bias) {
+            bias[0] = Position.Bias.Forward;
+            Rectangle alloc = a.getBounds();
+            tabBase = alloc.x;
+            if (y < alloc.y) return 0;
+            FontMetrics metrics = metrics();
+            int line = (int) ((y - alloc.y) / metrics.getHeight());
+            if (line >= document.lineCount) return document.getLength();
+            Segment text = new Segment();
+            int start = lineText(line, text);
+            if (x < alloc.x) return start;
+            return start + Utilities.getTabbedTextOffset(text, metrics, (float) alloc.x, x, this, start, true);
+        }
+
+        @Override
+        public float nextTabStop(float x, int tabOffset) {
+            int tab = TAB_SIZE * metrics().charWidth('m');
+            if (tab == 0) return x;
+            return tabBase + ((int) ((x - tabBase) / tab) + 1) * tab;
+        }
+
+        // the line without its line break; returns its start offset
+        private int lineText(int line, Segment text) {
+            int start = document.lineStarts[line];
+            int end = line + 1 < document.lineCount ? document.lineStarts[line + 1] : document.size;
+            try {
+                document.getText(start, end - start, text);
+            } catch (BadLocationException e) {
+                throw new IllegalStateException(e);
+            }
+            while (text.count > 0 && (text.array[text.offset + text.count - 1] == '\n'
+                    || text.array[text.offset + text.count - 1] == '\r')) {
+                text.count--;
+            }
+            return start;
+        }
+
+        private FontMetrics metrics() {
+            Container host = getContainer();
+            return host.getFontMetrics(host.getFont());
+        }
+    }
+}
@@ -1,45 +1,71 @@
 package com;
-import com.analyzer.LexicalAnalyzer;
-import com.analyzer.SemanticAnalyzer;
-import com.analyzer.SyntaxAnalyzer;
-import com.model.Token;
+import com.analyzer.CompilerPipeline;
+import com.analyzer.ParallelAnalyzer;
+import com.analyzer.StreamingLexer;
+import com.model.CompilationResult;
+import com.model.Diagnostics;
+import com.model.Phase;
+import com.model.PhaseMetrics;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
 
 public class MiniCompiler {
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--serve")) {
+            try {
+                CompileServer.serve(args.length > 1 ? Integer.parseInt(args[1]) : CompileServer.DEFAULT_PORT);
+            } catch (IOException | NumberFormatException e) {
+                System.err.println("Could not start the compile server: " + e.getMessage());
+                System.exit(BatchCompiler.EXIT_ERROR);
+            }
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--watch")) {
+            System.exit(WatchCompiler.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        boolean stats = args.length == 1 && args[0].equals("--stats");
+        if (args.length > 0 && !stats) {
+            System.exit(BatchCompiler.run(args));
+        }
         Scanner scanner = new Scanner(System.in);
         while (true) {
             System.out.println("Enter the path to the .txt file containing Java variable declarations:");
             String filePath = scanner.nextLine();
 
             try {
-                String content = new String(Files.readAllBytes(Paths.get(filePath)));
-                System.out.println("File contents:");
-                System.out.println(content);
+                Path path = Paths.get(filePath);
+                try (InputStream in = Files.newInputStream(path)) {
+                    System.out.println("File contents:");
+                    in.transferTo(System.out);
+                }
+                System.out.println();
                 System.out.println();
 
-                ArrayList<Token> tokens = LexicalAnalyzer.tokenize(content);
+                PhaseMetrics metrics = stats ? new PhaseMetrics() : null;
+                CompilationResult result = compile(path, metrics);
+                if (stats) System.out.print(metrics.format());
+                printDiagnostics(result.getDiagnostics());
 
-                if (!LexicalAnalyzer.isValidLexically(tokens)) {
+                if (result.getFailedPhase() == Phase.LEXICAL) {
                     System.out.println("Lexical analysis phase FAILED! Try again, pls :)");
                     continue; // Loop back
                 }
-                System.out.println("Lexical analysis phase PASSED :D");
-
-                if (!SyntaxAnalyzer.analyze(tokens)) {
+                if (result.getFailedPhase() == Phase.SYNTAX) {
                     System.out.println("SYNTAX ERROR! try again :)");
                     continue; // Loop back
                 }
-                System.out.println("Syntax Analysis PASSED! :D");
-
-                if (!SemanticAnalyzer.analyze(tokens)) {
+                if (result.getFailedPhase() == Phase.SEMANTIC) {
                     System.out.println("Semantic Analysis FAILED! Try again :)");
                     continue; // Loop back
                 }
+                System.out.println("Lexical analysis phase PASSED :D");
+                System.out.println("Syntax Analysis PASSED! :D");
                 System.out.println("Semantic Analysis PASSED! :D");
                 System.out.println("All analyses passed! Compilation successful.");
                 break; // Exit loop on success
@@ -51,4 +77,39 @@ public class MiniCompiler {
         }
         scanner.close();
     }
-}
\ No newline at end of file
+
+    // every error at once, in source order, so one run is enough to fix them all
+    private static void printDiagnostics(Diagnostics diagnostics) {
+        if (diagnostics == null || diagnostics.isEmpty()) return;
+        System.out.println(diagnostics.getTotal() + " error(s) found:");
+        for (int i = 0; i < diagnostics.size(); i++) {
+            System.out.println("  " + diagnostics.format(i));
+        }
+        if (diagnostics.getTotal() > diagnostics.size()) {
+            System.out.println("  ... and " + (diagnostics.getTotal() - diagnostics.size()) + " more");
+        }
+        System.out.println();
+    }
+
+    static CompilationResult compile(Path path) throws IOException {
+        return compile(path, null);
+    }
+
+    // single streaming pass that collects every error, with positions; big files are first
+    // split across cores, stopping at the first error, and only re-read sequentially when one
+    // fails. Metrics measure whichever passes ran
+    static CompilationResult compile(Path path, PhaseMetrics metrics) throws IOException {
+        if (Files.size(path) >= ParallelAnalyzer.PARALLEL_THRESHOLD) {
+            CompilationResult result = ParallelAnalyzer.compile(path, metrics);
+            if (result.isSuccessful()) return result;
+        }
+        Diagnostics diagnostics = new Diagnostics();
+        CompilationResult result = CompilerPipeline.compile(path, metrics, diagnostics);
+        if (!diagnostics.isEmpty()) {
+            try (Reader reader = StreamingLexer.openReader(path)) {
+                diagnostics.resolvePositions(reader);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+package com;
+
+import javax.swing.*;
+import java.awt.*;
+
+/**
+ * Output console for diagnostics. Appended text is buffered and moved into a ring buffer of
+ * at most maxLines lines once per frame; the list only renders the rows that are visible.
+ * Like other Swing components it must only be used from the EDT.
+ */
+class ResultConsole extends JList<String> {
+    static final int DEFAULT_MAX_LINES = 10_000;
+    private static final int FRAME_MS = 33;
+
+    private final LineModel lines;
+    private final StringBuilder pending = new StringBuilder();
+    private final Timer flushTimer;
+    private int widestLine;
+
+    ResultConsole(int maxLines) {
+        this(new LineModel(maxLines));
+    }
+
+    private ResultConsole(LineModel lines) {
+        super(lines);
+        this.lines = lines;
+        setFont(new Font(Font.MONOSPACED, Font.PLAIN, 13));
+        flushTimer = new Timer(FRAME_MS, e -> flush());
+        flushTimer.setRepeats(false);
+        updateCellSize();
+    }
+
+    public void append(String text) {
+        pending.append(text);
+        if (!flushTimer.isRunning()) flushTimer.start();
+    }
+
+    public void setText(String text) {
+        pending.setLength(0);
+        flushTimer.stop();
+        clearSelection();
+        lines.clear();
+        widestLine = 0;
+        updateCellSize();
+        append(text);
+    }
+
+    @Override
+    public void setFont(Font font) {
+        super.setFont(font);
+        if (lines != null) updateCellSize();
+    }
+
+    private void flush() {
+        if (pending.length() == 0) return;
+        boolean atBottom = isAtBottom();
+        int widest = lines.append(pending);
+        pending.setLength(0);
+        if (widest > widestLine) {
+            widestLine = widest;
+            updateCellSize();
+        }
+        if (atBottom && lines.getSize() > 0) ensureIndexIsVisible(lines.getSize() - 1);
+    }
+
+    private boolean isAtBottom() {
+        Rectangle visible = getVisibleRect();
+        return visible.y + visible.height >= getHeight() - getFixedCellHeight();
+    }
+
+    // fixed cell sizes keep the list layout O(1) however many lines there are
+    private void updateCellSize() {
+        FontMetrics fm = getFontMetrics(getFont());
+        setFixedCellHeight(fm.getHeight());
+        setFixedCellWidth(Math.max(1, widestLine) * fm.charWidth('m') + 8);
+    }
+
+    private static class LineModel extends AbstractListModel<String> {
+        private final String[] ring;
+        private int head;
+        private int size;
+        private final StringBuilder partial = new StringBuilder();
+
+        LineModel(int maxLines) {
+            ring = new String[Math.max(1, maxLines)];
+        }
+
+        @Override
+        public int getSize() {
+            return size + (partial.length() > 0 ? 1 : 0);
+        }
+
+        @Override
+        public String getElementAt(int index) {
+            return index < size ? ring[(head + index) % ring.length] : partial.toString();
+        }
+
+        void clear() {
+            int old = getSize();
+            head = 0;
+            size = 0;
+            partial.setLength(0);
+            if (old > 0) fireIntervalRemoved(this, 0, old - 1);
+        }
+
+        // returns the length of the longest line appended
+        int append(CharSequence text) {
+            int oldRows = getSize();
+            int evicted = 0;
+            int widest = 0;
+            int start = 0;
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) != '\n') continue;
+                partial.append(text, start, i);
+                widest = Math.max(widest, partial.length());
+                if (size == ring.length) {
+                    head = (head + 1) % ring.length;
+                    size--;
+                    evicted++;
+                }
+                ring[(head + size) % ring.length] = partial.toString();
+                size++;
+                partial.setLength(0);
+                start = i + 1;
+            }
+            partial.append(text, start, text.length());
+            widest = Math.max(widest, partial.length());
+
+            // one batch of events per flush
+            int removed = Math.min(evicted, oldRows);
+            if (removed > 0) fireIntervalRemoved(this, 0, removed - 1);
+            int kept = oldRows - removed;
+            int rows = getSize();
+            if (kept > 0) fireContentsChanged(this, 0, kept - 1);
+            if (rows > kept) fireIntervalAdded(this, kept, rows - 1);
+            return widest;
+        }
+    }
+}
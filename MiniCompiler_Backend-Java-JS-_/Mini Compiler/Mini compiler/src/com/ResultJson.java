@@ -0,0 +1,90 @@
+package com;
+
+import com.model.CompilationResult;
+import com.model.Diagnostics;
+import com.model.Phase;
+import com.model.PhaseMetrics;
+import java.util.Locale;
+
+// JSON fields shared by the batch output and the compile server responses
+class ResultJson {
+    static void appendResult(StringBuilder json, CompilationResult result) {
+        json.append("\"status\":\"").append(result.isSuccessful() ? "passed" : "failed").append('"');
+        if (!result.isSuccessful()) {
+            json.append(",\"phase\":\"").append(result.getFailedPhase().name()).append('"');
+            json.append(",\"offset\":").append(result.getErrorOffset());
+            json.append(",\"message\":");
+            quote(json, result.getMessage());
+        }
+        json.append(",\"tokens\":").append(result.getTokenCount());
+        json.append(",\"declarations\":").append(result.getDeclarationCount());
+        Diagnostics diagnostics = result.getDiagnostics();
+        if (diagnostics != null && !diagnostics.isEmpty()) appendDiagnostics(json, diagnostics);
+    }
+
+    // "errors":N,"diagnostics":[{...},...]; N also counts the entries past the list's limit
+    static void appendDiagnostics(StringBuilder json, Diagnostics diagnostics) {
+        json.append(",\"errors\":").append(diagnostics.getTotal());
+        json.append(",\"diagnostics\":[");
+        for (int i = 0; i < diagnostics.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append("{\"phase\":\"").append(diagnostics.phase(i).name()).append('"');
+            json.append(",\"line\":").append(diagnostics.line(i));
+            json.append(",\"column\":").append(diagnostics.column(i));
+            json.append(",\"offset\":").append(diagnostics.offset(i));
+            json.append(",\"message\":");
+            quote(json, diagnostics.message(i));
+            json.append('}');
+        }
+        json.append(']');
+    }
+
+    static void appendError(StringBuilder json, String message) {
+        json.append("\"status\":\"error\",\"message\":");
+        quote(json, message);
+    }
+
+    // "phases":{"lexical":{...},...} with the figures of each phase, and "fused":{...} with the
+    // time and allocation of phases that ran together
+    static void appendMetrics(StringBuilder json, PhaseMetrics metrics) {
+        json.append(",\"phases\":{");
+        for (Phase phase : Phase.values()) {
+            if (phase.ordinal() > 0) json.append(',');
+            json.append('"').append(phase.name().toLowerCase(Locale.ROOT)).append("\":{");
+            json.append("\"nanos\":").append(metrics.getNanos(phase));
+            json.append(",\"tokens\":").append(metrics.getTokens(phase));
+            json.append(",\"declarations\":").append(metrics.getDeclarations(phase));
+            json.append(",\"chars\":").append(metrics.getChars(phase));
+            json.append(",\"allocatedBytes\":").append(metrics.getAllocatedBytes(phase));
+            json.append('}');
+        }
+        json.append('}');
+        json.append(",\"fused\":{\"nanos\":").append(metrics.getFusedNanos());
+        json.append(",\"allocatedBytes\":").append(metrics.getFusedAllocatedBytes()).append('}');
+    }
+
+    static void appendMillis(StringBuilder json, long nanos) {
+        json.append(",\"millis\":").append(String.format(Locale.ROOT, "%.3f", nanos / 1e6));
+    }
+
+    static void quote(StringBuilder json, String text) {
+        json.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"': json.append("\\\""); break;
+                case '\\': json.append("\\\\"); break;
+                case '\n': json.append("\\n"); break;
+                case '\r': json.append("\\r"); break;
+                case '\t': json.append("\\t"); break;
+                default:
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+            }
+        }
+        json.append('"');
+    }
+}
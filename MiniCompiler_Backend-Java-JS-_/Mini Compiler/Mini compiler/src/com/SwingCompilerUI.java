@@ -1,9 +1,10 @@
 package com;
 
-import com.analyzer.LexicalAnalyzer;
-import com.analyzer.SemanticAnalyzer;
-import com.analyzer.SyntaxAnalyzer;
-import com.model.Token;
+import com.analyzer.IncrementalAnalyzer;
+import com.model.CompilationResult;
+import com.model.Diagnostics;
+import com.model.Phase;
+import com.model.PhaseMetrics;
 
 import javax.swing.*;
 import javax.swing.border.Border;
@@ -12,23 +13,69 @@ import javax.swing.border.EmptyBorder;
 import javax.swing.border.LineBorder;
 import javax.swing.event.DocumentEvent;
 import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultEditorKit;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.ViewFactory;
 import java.awt.*;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 
 public class SwingCompilerUI {
 
-    private static ArrayList<Token> tokens;
-    private static final JTextArea codeArea = new JTextArea();
-    private static final JTextArea resultArea = new JTextArea();
-    private static final JTextArea lineNumbers = new JTextArea("1");
+    // per-line token cache kept in step with the editor document; only touched on analysisThread
+    private static final IncrementalAnalyzer analysis = new IncrementalAnalyzer();
+    private static final ExecutorService analysisThread = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "analysis");
+        t.setDaemon(true);
+        return t;
+    });
+    private static AnalysisRun currentRun;
+
+    // files this big open read-only over a memory-mapped document instead of being copied in
+    private static final long MAPPED_THRESHOLD = 32L << 20;
+    private static FileLoad currentLoad;
+
+    // Live check: re-run every phase after a short pause in typing
+    private static final int LIVE_CHECK_DELAY_MS = 400;
+    private static boolean liveCheck = false;
+    private static final Timer liveTimer = liveTimer();
+    private static final JEditorPane codeArea = new CodeArea();
+    // re-lex only the lines touched by each edit; moves along when the editor gets a new document
+    private static final DocumentListener editListener = new DocumentListener() {
+        public void insertUpdate(DocumentEvent e) { applyEdit(e); sourceChanged(); }
+        public void removeUpdate(DocumentEvent e) { applyEdit(e); sourceChanged(); }
+        public void changedUpdate(DocumentEvent e) {}
+    };
+    private static final ResultConsole resultArea = new ResultConsole(ResultConsole.DEFAULT_MAX_LINES);
+    private static final LineNumberGutter lineNumbers = new LineNumberGutter(codeArea);
 
     // Theme state
     private static boolean isDarkTheme = true;
     private static JFrame frame;
     // UI components for theme updates
     private static JPanel header, buttonBar, labelPanel;
-    private static JLabel titleLabel, themeToggle;
+    private static JLabel titleLabel, themeToggle, liveToggle;
+    private static JLabel statusBar;
+    private static JPanel loadPanel; // progress and cancel, shown while a file loads
+    private static final JProgressBar loadProgress = new JProgressBar(0, 100);
+    private static JLabel cancelLoad;
     private static JSeparator divider;
     private static JPanel lnPanel; // container for lineNumbers to manage padding/bg
 
@@ -77,10 +124,126 @@ public class SwingCompilerUI {
         protected void paintBorder(Graphics g) {}
     }
 
+    // Row header that paints only the line numbers inside the clip, lined up with codeArea's rows
+    private static class LineNumberGutter extends JComponent {
+        // codeOuter's double border and padding below the text
+        private static final int BOTTOM_SLACK = 32;
+        private final JTextComponent area;
+        private int lineCount = 1;
+
+        LineNumberGutter(JTextComponent area) {
+            this.area = area;
+            setOpaque(true);
+            DocumentListener lines = new DocumentListener() {
+                public void insertUpdate(DocumentEvent e) { linesChanged(); }
+                public void removeUpdate(DocumentEvent e) { linesChanged(); }
+                public void changedUpdate(DocumentEvent e) {}
+            };
+            area.getDocument().addDocumentListener(lines);
+            // follow the editor to each new document
+            area.addPropertyChangeListener("document", e -> {
+                if (e.getOldValue() != null) ((Document) e.getOldValue()).removeDocumentListener(lines);
+                ((Document) e.getNewValue()).addDocumentListener(lines);
+                linesChanged();
+            });
+            area.addComponentListener(new java.awt.event.ComponentAdapter() {
+                @Override
+                public void componentMoved(java.awt.event.ComponentEvent e) { repaint(); }
+                @Override
+                public void componentResized(java.awt.event.ComponentEvent e) { revalidate(); }
+            });
+        }
+
+        private void linesChanged() {
+            int count = area.getDocument().getDefaultRootElement().getElementCount();
+            if (count != lineCount) {
+                lineCount = count;
+                revalidate();
+            }
+            repaint();
+        }
+
+        @Override
+        public Dimension getPreferredSize() {
+            FontMetrics fm = getFontMetrics(getFont());
+            int digits = Math.max(2, String.valueOf(lineCount).length());
+            return new Dimension(fm.charWidth('0') * digits + 4,
+                    area.getPreferredSize().height + BOTTOM_SLACK);
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            Rectangle clip = g.getClipBounds();
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            if (!area.isShowing() || !isShowing()) return;
+
+            FontMetrics areaFm = area.getFontMetrics(area.getFont());
+            int rowHeight = areaFm.getHeight();
+            int textTop = SwingUtilities.convertPoint(area, 0, area.getInsets().top, this).y;
+            int first = Math.max(0, (clip.y - textTop) / rowHeight);
+            int last = Math.min(lineCount - 1, (clip.y + clip.height - textTop) / rowHeight);
+
+            g.setFont(getFont());
+            g.setColor(getForeground());
+            FontMetrics fm = g.getFontMetrics();
+            for (int line = first; line <= last; line++) {
+                String label = String.valueOf(line + 1);
+                g.drawString(label, getWidth() - fm.stringWidth(label) - 2,
+                        textTop + line * rowHeight + areaFm.getAscent());
+            }
+        }
+    }
+
+    // Editor for the source. Its own kit gives a memory-mapped file a view that only measures
+    // the lines it paints; scrolling otherwise behaves like a JTextArea (the UI is asked for the
+    // preferred size, as JEditorPane's getPreferredSize calls back into the tracking methods)
+    private static class CodeArea extends JEditorPane {
+        CodeArea() {
+            setEditorKit(new CodeKit());
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportWidth() {
+            Container parent = SwingUtilities.getUnwrappedParent(this);
+            return parent instanceof JViewport && parent.getWidth() > getUI().getPreferredSize(this).width;
+        }
+
+        @Override
+        public boolean getScrollableTracksViewportHeight() {
+            Container parent = SwingUtilities.getUnwrappedParent(this);
+            return parent instanceof JViewport && parent.getHeight() > getUI().getPreferredSize(this).height;
+        }
+
+        // a row or a column at a time
+        @Override
+        public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction) {
+            FontMetrics fm = getFontMetrics(getFont());
+            return orientation == SwingConstants.VERTICAL ? fm.getHeight() : fm.charWidth('m');
+        }
+    }
+
+    private static class CodeKit extends DefaultEditorKit {
+        @Override
+        public ViewFactory getViewFactory() {
+            return element -> element.getDocument() instanceof MappedDocument
+                    ? new MappedDocument.LineView(element) : new SyntaxHighlighter.HighlightedView(element);
+        }
+    }
+
     private static final CurvyButton lexicalBtn = new CurvyButton("Lexical<br>Analysis", GOLD);
     private static final CurvyButton syntaxBtn  = new CurvyButton("Syntax<br>Analysis",  GOLD);
     private static final CurvyButton semanticBtn = new CurvyButton("Semantic<br>Analysis", GOLD);
 
+    // fires once per pause: every edit restarts it
+    private static Timer liveTimer() {
+        Timer timer = new Timer(LIVE_CHECK_DELAY_MS, e -> {
+            if (currentLoad == null) startRun(Phase.LEXICAL, Phase.SEMANTIC, true);
+        });
+        timer.setRepeats(false);
+        return timer;
+    }
+
     public static void main(String[] args) {
         try {
             UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -133,6 +296,13 @@ public class SwingCompilerUI {
             themeToggle.setText(isDarkTheme ? "Light" : "Dark");
             themeToggle.setForeground(isDarkTheme ? Color.WHITE : Color.BLACK);
         }
+        if (liveToggle != null) liveToggle.setForeground(isDarkTheme ? Color.WHITE : Color.BLACK);
+        if (statusBar != null) {
+            statusBar.setBackground(buttonBarBg);
+            statusBar.setForeground(isDarkTheme ? new Color(170, 170, 170) : new Color(80, 80, 80));
+        }
+        if (loadPanel != null) loadPanel.setBackground(buttonBarBg);
+        if (cancelLoad != null) cancelLoad.setForeground(isDarkTheme ? Color.WHITE : Color.BLACK);
 
         frame.getContentPane().setBackground(isDarkTheme ? new Color(30, 30, 30) : Color.WHITE);
 
@@ -167,7 +337,25 @@ public class SwingCompilerUI {
                 applyTheme();
             }
         });
-        header.add(themeToggle, BorderLayout.EAST);
+
+        liveToggle = new JLabel("Live: Off");
+        liveToggle.setFont(new Font("Segoe UI", Font.BOLD, 18));
+        liveToggle.setForeground(Color.WHITE);
+        liveToggle.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        liveToggle.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                liveCheck = !liveCheck;
+                liveToggle.setText(liveCheck ? "Live: On" : "Live: Off");
+                if (liveCheck) liveTimer.restart(); else liveTimer.stop();
+            }
+        });
+
+        JPanel headerControls = new JPanel(new FlowLayout(FlowLayout.RIGHT, 20, 0));
+        headerControls.setOpaque(false);
+        headerControls.add(liveToggle);
+        headerControls.add(themeToggle);
+        header.add(headerControls, BorderLayout.EAST);
 
         // === DIVIDER ===
         divider = new JSeparator();
@@ -208,29 +396,15 @@ public class SwingCompilerUI {
         labelPanel.add(resultLabel);
 
         // === LINE NUMBERS SETUP ===
-        lineNumbers.setEditable(false);
         lineNumbers.setFont(new Font("Courier", Font.PLAIN, 15));
-        lineNumbers.setText("1");
-        lineNumbers.setBorder(null);
 
         // Set code area font and margins (affects where text starts)
         codeArea.setFont(new Font("Courier", Font.PLAIN, 15));
-        // internal margin inside the text area - we'll match lnPanel top padding to this
+        // internal margin inside the text area
         final Insets codeMarginInsets = new Insets(10, 10, 10, 10);
         codeArea.setMargin(codeMarginInsets);
 
-        // update line numbers when code changes
-        codeArea.getDocument().addDocumentListener(new DocumentListener() {
-            public void insertUpdate(DocumentEvent e) { updateLineNumbers(); }
-            public void removeUpdate(DocumentEvent e) { updateLineNumbers(); }
-            public void changedUpdate(DocumentEvent e) {}
-            private void updateLineNumbers() {
-                StringBuilder sb = new StringBuilder();
-                int lines = codeArea.getLineCount();
-                for (int i = 1; i <= lines; i++) sb.append(i).append('\n');
-                lineNumbers.setText(sb.toString());
-            }
-        });
+        codeArea.getDocument().addDocumentListener(editListener);
 
         // === BUILD CODE PANEL (LEFT) WITH DOUBLE BORDER (ONLY AROUND CODE) ===
         // inner area that will host the codeArea (no border on the inner JScrollPane)
@@ -249,13 +423,12 @@ public class SwingCompilerUI {
         codeOuter.setBackground(isDarkTheme ? Color.BLACK : new Color(252, 252, 252));
         codeOuter.add(codeInner, BorderLayout.CENTER);
 
-        // Now create lnPanel and set top padding to align numbers with codeArea's top margin
+        // Now create lnPanel; the gutter lines its numbers up with codeArea's rows itself
         lnPanel = new JPanel(new BorderLayout());
         lnPanel.setOpaque(true);
         lnPanel.setBackground(isDarkTheme ? new Color(40, 40, 40) : new Color(230, 230, 230));
-        // Match top padding so numbers align with codeArea text (inner padding 12 + code margin top 10 -> offset)
-        lnPanel.setBorder(new EmptyBorder((12 + codeMarginInsets.top - 4), 6, 0, 6));
-        lnPanel.add(lineNumbers, BorderLayout.NORTH);
+        lnPanel.setBorder(new EmptyBorder(0, 6, 0, 6));
+        lnPanel.add(lineNumbers, BorderLayout.CENTER);
 
         // Put everything in a JScrollPane for the code area so rowHeaderView can display lnPanel
         // This scrollpane wraps the codeOuter (which already has the double border). We must ensure this wrapper shows no extra white border.
@@ -309,9 +482,36 @@ public class SwingCompilerUI {
         middleSection.add(topSection, BorderLayout.NORTH);
         middleSection.add(labelPanel, BorderLayout.SOUTH);
 
+        // === STATUS BAR ===
+        statusBar = new JLabel("Ready");
+        statusBar.setOpaque(true);
+        statusBar.setFont(new Font("Segoe UI", Font.PLAIN, 13));
+        statusBar.setBorder(BorderFactory.createEmptyBorder(4, 20, 4, 20));
+
+        // === LOAD PROGRESS ===
+        loadProgress.setStringPainted(true);
+        cancelLoad = new JLabel("Cancel");
+        cancelLoad.setFont(new Font("Segoe UI", Font.BOLD, 13));
+        cancelLoad.setCursor(Cursor.getPredefinedCursor(Cursor.HAND_CURSOR));
+        cancelLoad.addMouseListener(new java.awt.event.MouseAdapter() {
+            @Override
+            public void mouseClicked(java.awt.event.MouseEvent e) {
+                if (currentLoad != null) currentLoad.cancel(true);
+            }
+        });
+        loadPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 12, 2));
+        loadPanel.add(loadProgress);
+        loadPanel.add(cancelLoad);
+        loadPanel.setVisible(false);
+
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.add(statusBar, BorderLayout.CENTER);
+        statusPanel.add(loadPanel, BorderLayout.EAST);
+
         frame.setLayout(new BorderLayout());
         frame.add(middleSection, BorderLayout.NORTH);
         frame.add(splitPane, BorderLayout.CENTER);
+        frame.add(statusPanel, BorderLayout.SOUTH);
 
         // Apply theme only AFTER everything is constructed
         applyTheme();
@@ -321,110 +521,371 @@ public class SwingCompilerUI {
         // === ACTIONS ===
         openBtn.addActionListener(e -> openFile(frame));
         clearBtn.addActionListener(e -> {
-            codeArea.setText("");
+            stopLoad();
+            installDocument(codeArea.getEditorKit().createDefaultDocument());
             resultArea.setText("");
-            tokens = null;
             resetButtons();
             lexicalBtn.setCompleted(false);
             syntaxBtn.setCompleted(false);
             semanticBtn.setCompleted(false);
-            // reset line numbers
-            lineNumbers.setText("1");
         });
 
-        lexicalBtn.addActionListener(e -> runLexical());
-        syntaxBtn.addActionListener(e -> runSyntax());
-        semanticBtn.addActionListener(e -> runSemantic());
-
-        // update lexical button enablement on typing
-        codeArea.getDocument().addDocumentListener(new DocumentListener() {
-            public void insertUpdate(DocumentEvent e) { updateEnable(); }
-            public void removeUpdate(DocumentEvent e) { updateEnable(); }
-            public void changedUpdate(DocumentEvent e) {}
-            private void updateEnable() {
-                lexicalBtn.setEnabled(!codeArea.getText().trim().isEmpty());
-            }
-        });
+        lexicalBtn.addActionListener(e -> startRun(Phase.LEXICAL, Phase.LEXICAL, false));
+        syntaxBtn.addActionListener(e -> startRun(Phase.SYNTAX, Phase.SYNTAX, false));
+        semanticBtn.addActionListener(e -> startRun(Phase.SEMANTIC, Phase.SEMANTIC, false));
     }
 
+    // loads in the background; the window stays responsive and the load can be cancelled
     private static void openFile(JFrame frame) {
         JFileChooser fc = new JFileChooser();
-        if (fc.showOpenDialog(frame) == JFileChooser.APPROVE_OPTION) {
+        if (fc.showOpenDialog(frame) != JFileChooser.APPROVE_OPTION) return;
+        Path path = fc.getSelectedFile().toPath();
+        long size;
+        try {
+            size = Files.size(path);
+        } catch (IOException ex) {
+            resultArea.append("ERROR: " + ex.getMessage() + "\n");
+            return;
+        }
+        stopLoad();
+        currentLoad = new FileLoad(path, size);
+        if (currentLoad.document != null) installDocument(currentLoad.document);
+        codeArea.setEditable(false);
+        resetButtons();
+        resultArea.setText("Loading " + path.getFileName() + "...\n\n");
+        loadProgress.setValue(0);
+        loadPanel.setVisible(true);
+        currentLoad.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) loadProgress.setValue((Integer) e.getNewValue());
+        });
+        currentLoad.execute();
+    }
+
+    // drops a load in progress without touching the editor
+    private static void stopLoad() {
+        if (currentLoad != null) {
+            currentLoad.cancel(true);
+            currentLoad = null;
+            loadPanel.setVisible(false);
+        }
+    }
+
+    // gives the editor a new document and starts the incremental analysis over on empty text
+    private static void installDocument(Document document) {
+        cancelRun();
+        codeArea.getDocument().removeDocumentListener(editListener);
+        codeArea.setDocument(document);
+        document.addDocumentListener(editListener);
+        codeArea.setEditable(!(document instanceof MappedDocument));
+        analysisThread.execute(() -> analysis.replaceLines(0, analysis.getLineCount(), List.of("")));
+    }
+
+    /**
+     * Streams a file into a fresh document a chunk at a time, so each chunk is laid out and
+     * re-lexed as it arrives; a file of MAPPED_THRESHOLD or more is mapped instead.
+     */
+    private static class FileLoad extends SwingWorker<Document, String> {
+        private static final int CHUNK_CHARS = 1 << 18;
+        // chunks read but not yet inserted; a busy EDT holds back the reader
+        private final Semaphore inFlight = new Semaphore(4);
+        private final Path path;
+        private final long size;
+        // null when the file is mapped
+        private final Document document;
+
+        FileLoad(Path path, long size) {
+            this.path = path;
+            this.size = size;
+            document = size >= MAPPED_THRESHOLD ? null : codeArea.getEditorKit().createDefaultDocument();
+        }
+
+        @Override
+        protected Document doInBackground() throws IOException, InterruptedException {
+            if (document == null) return MappedDocument.map(path, this::setProgress, this::isCancelled);
+            // strict UTF-8, like Files.readString
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+                 Reader reader = Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), -1)) {
+                char[] buf = new char[CHUNK_CHARS];
+                while (true) {
+                    int n = 0;
+                    int read;
+                    while (n < buf.length && (read = reader.read(buf, n, buf.length - n)) != -1) n += read;
+                    if (n == 0) break;
+                    inFlight.acquire();
+                    publish(new String(buf, 0, n));
+                    setProgress((int) Math.min(100, channel.position() * 100 / Math.max(1, size)));
+                }
+            }
+            return document;
+        }
+
+        @Override
+        protected void process(List<String> chunks) {
+            for (String chunk : chunks) {
+                if (!isCancelled()) {
+                    try {
+                        document.insertString(document.getLength(), chunk, null);
+                    } catch (BadLocationException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+                inFlight.release();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (currentLoad != this) return;
+            currentLoad = null;
+            loadPanel.setVisible(false);
             try {
-                codeArea.setText(Files.readString(fc.getSelectedFile().toPath()));
-                codeArea.setEditable(true);
-                resultArea.setText("File opened: " + fc.getSelectedFile().getName() + "\n\n");
-                resetButtons();
-                lexicalBtn.setCompleted(false);
-                syntaxBtn.setCompleted(false);
-                semanticBtn.setCompleted(false);
-                // update line numbers
-                SwingUtilities.invokeLater(() -> {
-                    StringBuilder sb = new StringBuilder();
-                    int lines = codeArea.getLineCount();
-                    for (int i = 1; i <= lines; i++) sb.append(i).append('\n');
-                    lineNumbers.setText(sb.length() > 0 ? sb.toString() : "1");
-                });
-            } catch (Exception ex) {
-                resultArea.append("ERROR: " + ex.getMessage() + "\n");
+                Document loaded = get();
+                if (loaded instanceof MappedDocument) installDocument(loaded);
+                codeArea.setEditable(!(loaded instanceof MappedDocument));
+                resultArea.setText("File opened: " + path.getFileName()
+                        + (loaded instanceof MappedDocument ? " (read-only, memory-mapped)" : "") + "\n\n");
+            } catch (CancellationException ex) {
+                // a mapped file never replaced the old document; a streamed one is half there
+                if (document != null) installDocument(codeArea.getEditorKit().createDefaultDocument());
+                codeArea.setEditable(!(codeArea.getDocument() instanceof MappedDocument));
+                resultArea.setText("Loading cancelled: " + path.getFileName() + "\n\n");
+            } catch (InterruptedException ignored) {
+            } catch (ExecutionException ex) {
+                if (document != null) installDocument(codeArea.getEditorKit().createDefaultDocument());
+                codeArea.setEditable(!(codeArea.getDocument() instanceof MappedDocument));
+                resultArea.append("ERROR: " + ex.getCause().getMessage() + "\n");
             }
+            resetButtons();
+            lexicalBtn.setCompleted(false);
+            syntaxBtn.setCompleted(false);
+            semanticBtn.setCompleted(false);
         }
     }
 
-    private static void runLexical() {
-        resultArea.append("\n=== Running Lexical Analysis ===\n\n");
+    private static void applyEdit(DocumentEvent e) {
+        Document doc = e.getDocument();
+        Element root = doc.getDefaultRootElement();
+        DocumentEvent.ElementChange change = e.getChange(root);
+        int first;
+        int removed;
+        Element[] added;
+        if (change != null) {
+            first = change.getIndex();
+            removed = change.getChildrenRemoved().length;
+            added = change.getChildrenAdded();
+        } else {
+            // edit inside a single line
+            first = root.getElementIndex(e.getOffset());
+            removed = 1;
+            added = new Element[] { root.getElement(first) };
+        }
+        List<String> lines = new ArrayList<>(added.length);
         try {
-            tokens = LexicalAnalyzer.tokenize(codeArea.getText());
-            if (!LexicalAnalyzer.isValidLexically(tokens)) {
-                resultArea.append("Lexical analysis FAILED!\nUnknown tokens found.\n\n");
-                lexicalBtn.setCompleted(false);
-                return;
+            for (Element line : added) {
+                int start = line.getStartOffset();
+                int end = Math.min(line.getEndOffset(), doc.getLength());
+                String text = doc.getText(start, end - start);
+                lines.add(text.endsWith("\n") ? text.substring(0, text.length() - 1) : text);
             }
-            resultArea.append("Lexical Analysis Completed.\nTokens: " + tokens.size() + "\n\n");
-            syntaxBtn.setEnabled(true);
-            lexicalBtn.setCompleted(true);
-        } catch (Exception ex) {
-            resultArea.append("Lexical Error: " + ex.getMessage() + "\n");
-            ex.printStackTrace();
+        } catch (BadLocationException ex) {
+            throw new IllegalStateException(ex);
         }
+        analysisThread.execute(() -> analysis.replaceLines(first, removed, lines));
     }
 
-    private static void runSyntax() {
-        resultArea.append("\n=== Running Syntax Analysis ===\n\n");
-        try {
-            if (!SyntaxAnalyzer.analyze(tokens)) {
-                resultArea.append("Syntax analysis FAILED!\nInvalid syntax.\n\n");
-                syntaxBtn.setCompleted(false);
-                return;
+    // Runs phases first..last on the analysis thread and stops at the first phase that fails
+    private static class AnalysisRun extends SwingWorker<Phase, String> {
+        private final Phase first;
+        private final Phase last;
+        private final boolean live;
+        // a mapped file never reaches the incremental analyzer, so it is checked from disk in
+        // one pass; null for the editor's own text
+        private final Path file;
+        private final int fileLines;
+        // the mapped view shows bytes as ISO-8859-1 chars, which the analysis may decode otherwise
+        private final boolean viewDiffers;
+        private CompilationResult fileResult;
+        private volatile Phase running;
+        // figures for the status bar, read in done()
+        private PhaseMetrics metrics;
+        private int lineCount;
+        private long tokenCount;
+
+        AnalysisRun(Phase first, Phase last, boolean live) {
+            this.first = first;
+            this.last = last;
+            this.live = live;
+            Document document = codeArea.getDocument();
+            file = document instanceof MappedDocument ? ((MappedDocument) document).getPath() : null;
+            fileLines = document.getDefaultRootElement().getElementCount();
+            viewDiffers = file != null && !((MappedDocument) document).isAscii()
+                    && !Charset.defaultCharset().equals(StandardCharsets.ISO_8859_1);
+        }
+
+        @Override
+        protected Phase doInBackground() throws IOException {
+            PhaseMetrics fileMetrics = new PhaseMetrics();
+            try {
+                running = first;
+                if (file != null) fileResult = MiniCompiler.compile(file, fileMetrics);
+                return runPhases();
+            } finally {
+                if (file != null) {
+                    metrics = fileMetrics;
+                    lineCount = fileLines;
+                    tokenCount = fileResult == null ? 0 : fileResult.getTokenCount();
+                } else {
+                    metrics = analysis.takeMetrics();
+                    lineCount = analysis.getLineCount();
+                    tokenCount = analysis.getTokenCount();
+                }
             }
-            resultArea.append("Syntax Analysis Completed.\n\n");
-            semanticBtn.setEnabled(true);
-            syntaxBtn.setCompleted(true);
-        } catch (Exception ex) {
-            resultArea.append("Syntax Error: " + ex.getMessage() + "\n");
-            ex.printStackTrace();
         }
-    }
 
-    private static void runSemantic() {
-        resultArea.append("\n=== Running Semantic Analysis ===\n\n");
-        try {
-            if (!SemanticAnalyzer.analyze(tokens)) {
-                resultArea.append("Semantic analysis FAILED!\nType mismatch or duplicate var.\n\n");
-                semanticBtn.setCompleted(false);
+        private boolean passes(Phase phase) {
+            if (file != null) {
+                Phase failed = fileResult.getFailedPhase();
+                return failed == null || failed.compareTo(phase) > 0;
+            }
+            switch (phase) {
+                case LEXICAL: return analysis.isValidLexically();
+                case SYNTAX: return analysis.isValidSyntax();
+                default: return analysis.getResult().isSuccessful();
+            }
+        }
+
+        private CompilationResult result() {
+            return file != null ? fileResult : analysis.getResult();
+        }
+
+        private Phase runPhases() {
+            Phase passed = null;
+            for (Phase phase : Phase.values()) {
+                if (phase.compareTo(first) < 0 || phase.compareTo(last) > 0) continue;
+                running = phase;
+                publish("\n=== Running " + phase.getDisplayName() + " Analysis ===\n\n");
+                switch (phase) {
+                    case LEXICAL:
+                        if (!passes(phase)) {
+                            publish("Lexical analysis FAILED!\nUnknown tokens found.\n\n");
+                            publishDiagnostics();
+                            return passed;
+                        }
+                        publish("Lexical Analysis Completed.\nTokens: "
+                                + (file != null ? fileResult.getTokenCount() : analysis.getTokenCount()) + "\n\n");
+                        break;
+                    case SYNTAX:
+                        if (!passes(phase)) {
+                            publish("Syntax analysis FAILED!\nInvalid syntax.\n\n");
+                            publishDiagnostics();
+                            return passed;
+                        }
+                        publish("Syntax Analysis Completed.\n\n");
+                        break;
+                    default:
+                        if (!passes(phase)) {
+                            publish("Semantic analysis FAILED!\nType mismatch or duplicate var.\n\n");
+                            publishDiagnostics();
+                            return passed;
+                        }
+                        publish("Semantic Analysis Completed.\n\n");
+                        publish("ALL ANALYSES PASSED! COMPILATION SUCCESSFUL!\n\n");
+                        break;
+                }
+                passed = phase;
+            }
+            return passed;
+        }
+
+        // every error of every phase, so they can all be fixed before the next run
+        private void publishDiagnostics() {
+            Diagnostics diagnostics = result().getDiagnostics();
+            if (diagnostics == null || diagnostics.isEmpty()) return;
+            StringBuilder sb = new StringBuilder();
+            sb.append(diagnostics.getTotal()).append(" error(s):\n");
+            for (int i = 0; i < diagnostics.size(); i++) {
+                sb.append("  ").append(diagnostics.format(i)).append('\n');
+            }
+            if (diagnostics.getTotal() > diagnostics.size()) {
+                sb.append("  ... and ").append(diagnostics.getTotal() - diagnostics.size()).append(" more\n");
+            }
+            if (viewDiffers) {
+                sb.append("Note: columns count the file's characters in ").append(Charset.defaultCharset())
+                        .append(", but the read-only view shows one character per byte, so they differ\n")
+                        .append("from the view after a non-ASCII character.\n");
+            }
+            publish(sb.append('\n').toString());
+        }
+
+        @Override
+        protected void process(List<String> chunks) {
+            if (isCancelled()) return;
+            // one append per batch instead of one per message
+            StringBuilder sb = new StringBuilder();
+            for (String chunk : chunks) sb.append(chunk);
+            resultArea.append(sb.toString());
+        }
+
+        @Override
+        protected void done() {
+            if (currentRun == this) currentRun = null;
+            if (isCancelled()) {
+                if (!live) resultArea.append("Analysis cancelled: source changed.\n\n");
                 return;
             }
-            resultArea.append("Semantic Analysis Completed.\n\n");
-            resultArea.append("ALL ANALYSES PASSED! COMPILATION SUCCESSFUL!\n\n");
-            semanticBtn.setCompleted(true);
-        } catch (Exception ex) {
-            resultArea.append("Semantic Error: " + ex.getMessage() + "\n");
-            ex.printStackTrace();
+            statusBar.setText("Lines: " + lineCount + "   Tokens: " + tokenCount + "   |   " + metrics.summary());
+            try {
+                Phase passed = get();
+                for (Phase phase : Phase.values()) {
+                    if (phase.compareTo(first) < 0 || phase.compareTo(last) > 0) continue;
+                    if (passed != null && phase.compareTo(passed) <= 0) {
+                        buttonFor(phase).setCompleted(true);
+                        if (phase == Phase.LEXICAL) syntaxBtn.setEnabled(true);
+                        if (phase == Phase.SYNTAX) semanticBtn.setEnabled(true);
+                    } else {
+                        buttonFor(phase).setCompleted(false);
+                        break;
+                    }
+                }
+            } catch (InterruptedException ignored) {
+            } catch (ExecutionException ex) {
+                Throwable cause = ex.getCause();
+                resultArea.append(running.getDisplayName() + " Error: " + cause.getMessage() + "\n");
+            }
+        }
+    }
+
+    private static CurvyButton buttonFor(Phase phase) {
+        switch (phase) {
+            case LEXICAL: return lexicalBtn;
+            case SYNTAX: return syntaxBtn;
+            default: return semanticBtn;
         }
     }
 
+    private static void startRun(Phase first, Phase last, boolean live) {
+        cancelRun();
+        if (live) resultArea.setText("");
+        currentRun = new AnalysisRun(first, last, live);
+        analysisThread.execute(currentRun);
+    }
+
+    private static void cancelRun() {
+        if (currentRun != null) {
+            currentRun.cancel(true);
+            currentRun = null;
+        }
+    }
+
+    // called on every edit: the running analysis is stale, and live mode waits for a pause
+    private static void sourceChanged() {
+        cancelRun();
+        if (liveCheck) liveTimer.restart();
+        lexicalBtn.setEnabled(currentLoad == null && codeArea.getDocument().getLength() > 0);
+    }
+
     private static void resetButtons() {
-        lexicalBtn.setEnabled(!codeArea.getText().trim().isEmpty());
+        lexicalBtn.setEnabled(currentLoad == null && codeArea.getDocument().getLength() > 0);
         syntaxBtn.setEnabled(false);
         semanticBtn.setEnabled(false);
     }
@@ -0,0 +1,121 @@
+package com;
+
+import com.analyzer.StreamingLexer;
+import com.model.TokenKind;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.PlainView;
+import javax.swing.text.Segment;
+import javax.swing.text.TabExpander;
+import javax.swing.text.Utilities;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.util.Arrays;
+
+/**
+ * Colours the editor's text by token kind, with the compiler's own lexer, and puts a wavy
+ * underline under every unknown token. A line end closes any open literal, word or operator,
+ * so the lexer starts every line in its initial state and a line lexes the same on its own as
+ * inside the whole text. Only the lines being painted are lexed, and there is nothing to keep
+ * between paints or to update on an edit. Used from the EDT only, one instance per view.
+ */
+final class SyntaxHighlighter {
+    private static final Color[] DARK = palette(new Color(86, 156, 214), new Color(156, 220, 254),
+            new Color(212, 212, 212), new Color(206, 145, 120), new Color(220, 220, 170),
+            new Color(212, 212, 212), new Color(244, 71, 71));
+    private static final Color[] LIGHT = palette(new Color(0, 0, 192), new Color(0, 112, 150),
+            new Color(60, 60, 60), new Color(163, 21, 21), new Color(128, 128, 0),
+            new Color(60, 60, 60), new Color(205, 0, 0));
+
+    // tokens of the last line lexed, by absolute offset
+    private int[] kinds = new int[16];
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private int count;
+    private final StreamingLexer.TokenSink sink = (kind, text, start) -> {
+        if (count == kinds.length) {
+            kinds = Arrays.copyOf(kinds, count * 2);
+            starts = Arrays.copyOf(starts, count * 2);
+            ends = Arrays.copyOf(ends, count * 2);
+        }
+        kinds[count] = kind.code();
+        starts[count] = (int) start;
+        ends[count++] = (int) start + text.length();
+    };
+
+    // in TokenKind order
+    private static Color[] palette(Color dataType, Color identifier, Color assignment, Color value,
+                                   Color delimiter, Color operator, Color unknown) {
+        return new Color[] { dataType, identifier, assignment, value, delimiter, operator, unknown };
+    }
+
+    /**
+     * Draws [p0, p1) of a line whose text, without its line break, starts at lineStart;
+     * returns the x where the text ends.
+     */
+    float drawLine(Graphics2D g, JTextComponent host, Segment line, int lineStart, int p0, int p1,
+                   float x, float y, TabExpander tabs) {
+        lex(line, lineStart);
+        Color background = host.getBackground();
+        boolean dark = background.getRed() * 299 + background.getGreen() * 587 + background.getBlue() * 114 < 128_000;
+        Color[] colors = dark ? DARK : LIGHT;
+        int t = 0;
+        while (t < count && ends[t] <= p0) t++;
+        int pos = p0;
+        while (pos < p1) {
+            boolean inToken = t < count && starts[t] <= pos;
+            int next = Math.min(p1, inToken ? ends[t] : t < count ? starts[t] : p1);
+            g.setColor(inToken ? colors[kinds[t]] : host.getForeground());
+            float from = x;
+            Segment run = new Segment(line.array, line.offset + pos - lineStart, next - pos);
+            x = Utilities.drawTabbedText(run, x, y, g, tabs, pos);
+            if (inToken && kinds[t] == TokenKind.UNKNOWN.code()) underline(g, from, x, y);
+            if (inToken && next == ends[t]) t++;
+            pos = next;
+        }
+        return x;
+    }
+
+    private void lex(Segment line, int lineStart) {
+        count = 0;
+        StreamingLexer lexer = new StreamingLexer(sink, lineStart, true);
+        lexer.feed(line.array, line.offset, line.count);
+        lexer.finish();
+    }
+
+    // a zigzag just below the baseline
+    private static void underline(Graphics2D g, float from, float to, float y) {
+        int base = (int) y + 2;
+        for (int x = (int) from; x < (int) to; x += 2) {
+            int up = (x - (int) from) / 2 % 2;
+            g.drawLine(x, base + up, Math.min(x + 2, (int) to), base + 1 - up);
+        }
+    }
+
+    /** PlainView that paints through a SyntaxHighlighter; selected text keeps the plain colour. */
+    static final class HighlightedView extends PlainView {
+        private final SyntaxHighlighter highlighter = new SyntaxHighlighter();
+        private final Segment line = new Segment();
+
+        HighlightedView(Element root) {
+            super(root);
+        }
+
+        @Override
+        protected float drawUnselectedText(Graphics2D g, float x, float y, int p0, int p1)
+                throws BadLocationException {
+            JTextComponent host = (JTextComponent) getContainer();
+            if (!host.isEnabled()) return super.drawUnselectedText(g, x, y, p0, p1);
+            Document document = getDocument();
+            Element root = getElement();
+            Element element = root.getElement(root.getElementIndex(p0));
+            int start = element.getStartOffset();
+            int end = element.getEndOffset() - 1;
+            document.getText(start, end - start, line);
+            return highlighter.drawLine(g, host, line, start, p0, p1, x, y, this);
+        }
+    }
+}
@@ -0,0 +1,555 @@
+package com;
+
+import com.analyzer.DeclarationChecker;
+import com.analyzer.ProjectAnalyzer;
+import com.analyzer.StreamingLexer;
+import com.model.CompilationResult;
+import com.model.Diagnostics;
+import com.model.Phase;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Watch mode: checks the files named like in a batch run, then waits for changes and re-checks
+ * only the files that changed, printing one line per verdict that changed:
+ *
+ *   + FILE: verdict     a new file
+ *   ~ FILE: verdict     a changed verdict
+ *   - FILE              a deleted file
+ *
+ * Events are coalesced until the tree has been quiet for a moment, so saving many files at once
+ * costs one round. Per file only its size and time stamp, its verdict and, with --project, the
+ * variables it declares are kept, so memory and the cost of a round do not grow with the number
+ * of files that did not change. With --project, a variable may be declared in one file only; of
+ * several files declaring it, the first in path order owns it.
+ */
+public class WatchCompiler {
+    // a round starts once no event came for this long, or this long after its first event at most
+    static final long QUIET_MILLIS = 100;
+    static final long MAX_DELAY_MILLIS = 1000;
+    // changed verdicts printed per round; the rest are only counted
+    static final int MAX_LINES = 100;
+
+    private static final String USAGE = "Usage: MiniCompiler --watch [--jobs N] [--project] <file|directory|glob>...";
+
+    // what is kept of a file between rounds
+    private static class FileState {
+        private final Path path;
+        private long size;
+        private long modified;
+        private String verdict;
+        // the file's own first error, -1 as offset when it passed
+        private Phase phase;
+        private long offset = -1;
+        private int line;
+        private int column;
+        private String message;
+        // with --project: the variables it declares, where, and as line << 32 | column
+        private String[] names = new String[0];
+        private long[] positions = new long[0];
+        private long[] places = new long[0];
+
+        FileState(Path path) {
+            this.path = path;
+        }
+    }
+
+    // the files declaring one name, in path order, and where in each file's arrays it is
+    private static class Declarers {
+        private final String name;
+        private FileState[] files = new FileState[1];
+        private int[] slots = new int[1];
+        private int size;
+
+        Declarers(String name) {
+            this.name = name;
+        }
+
+        // the position the file has or would have among the declarers
+        int indexOf(Path path) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (files[mid].path.compareTo(path) < 0) low = mid + 1;
+                else high = mid;
+            }
+            return low;
+        }
+
+        void insert(int at, FileState file, int slot) {
+            if (size == files.length) {
+                files = Arrays.copyOf(files, size * 2);
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            System.arraycopy(files, at, files, at + 1, size - at);
+            System.arraycopy(slots, at, slots, at + 1, size - at);
+            files[at] = file;
+            slots[at] = slot;
+            size++;
+        }
+
+        void remove(int at) {
+            System.arraycopy(files, at + 1, files, at, size - at - 1);
+            System.arraycopy(slots, at + 1, slots, at, size - at - 1);
+            files[--size] = null;
+        }
+    }
+
+    // a watched argument: a file, or the files below base the matcher accepts
+    private static class Root {
+        private final Path base;
+        private final PathMatcher matcher;
+
+        Root(Path base, PathMatcher matcher) {
+            this.base = base;
+            this.matcher = matcher;
+        }
+
+        boolean matches(Path file) {
+            if (matcher == null) return file.equals(base);
+            return file.startsWith(base) && !file.equals(base) && matcher.matches(base.relativize(file));
+        }
+
+        boolean covers(Path directory) {
+            return matcher != null && directory.startsWith(base);
+        }
+    }
+
+    private final List<Root> roots;
+    private final boolean project;
+    private final ExecutorService pool;
+    private final WatchService watcher;
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+    // sorted by path, which is also the ownership order
+    private final TreeMap<Path, FileState> files = new TreeMap<>();
+    // with --project: the files declaring each name, in path order
+    private final Map<String, Declarers> declarers = new HashMap<>();
+
+    WatchCompiler(List<Root> roots, boolean project, int jobs) throws IOException {
+        this.roots = roots;
+        this.project = project;
+        this.pool = Executors.newFixedThreadPool(jobs);
+        this.watcher = FileSystems.getDefault().newWatchService();
+    }
+
+    public static int run(String[] args) {
+        boolean project = false;
+        int jobs = Runtime.getRuntime().availableProcessors();
+        List<Root> roots = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--project")) {
+                project = true;
+            } else if (args[i].equals("--jobs") && i + 1 < args.length) {
+                try {
+                    jobs = Integer.parseInt(args[++i]);
+                } catch (NumberFormatException e) {
+                    jobs = 0;
+                }
+                if (jobs < 1) {
+                    System.err.println(USAGE);
+                    return BatchCompiler.EXIT_ERROR;
+                }
+            } else if (args[i].startsWith("--")) {
+                System.err.println(USAGE);
+                return BatchCompiler.EXIT_ERROR;
+            } else {
+                roots.add(root(args[i]));
+            }
+        }
+        if (roots.isEmpty()) {
+            System.err.println(USAGE);
+            return BatchCompiler.EXIT_ERROR;
+        }
+
+        WatchCompiler compiler;
+        try {
+            compiler = new WatchCompiler(roots, project, jobs);
+        } catch (IOException e) {
+            System.err.println("Could not watch the files: " + BatchCompiler.describe(e));
+            return BatchCompiler.EXIT_ERROR;
+        }
+        try {
+            compiler.watch();
+        } catch (IOException e) {
+            System.err.println("Could not watch the files: " + BatchCompiler.describe(e));
+            return BatchCompiler.EXIT_ERROR;
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            compiler.close();
+        }
+        return BatchCompiler.EXIT_OK;
+    }
+
+    // the same files a batch run would expand the argument to
+    private static Root root(String pattern) {
+        int glob = BatchCompiler.firstGlobChar(pattern);
+        if (glob < 0) {
+            Path path = Paths.get(pattern);
+            if (!Files.isDirectory(path)) return new Root(path, null);
+            return new Root(path, path.getFileSystem().getPathMatcher("glob:**.txt"));
+        }
+        int cut = Math.max(pattern.lastIndexOf('/', glob), pattern.lastIndexOf('\\', glob));
+        Path base = Paths.get(cut < 0 ? "" : pattern.substring(0, cut + 1));
+        return new Root(base, FileSystems.getDefault().getPathMatcher("glob:" + pattern.substring(cut + 1)));
+    }
+
+    void watch() throws IOException, InterruptedException {
+        Set<Path> found = new TreeSet<>();
+        for (Root root : roots) found.addAll(register(root.base, root));
+        int failed = check(found, false);
+        System.out.println("Watching " + files.size() + " file(s) in " + directories.size() + " director"
+                + (directories.size() == 1 ? "y" : "ies") + ", " + failed + " failing");
+        System.out.flush();
+
+        while (true) {
+            Set<Path> changed = new LinkedHashSet<>();
+            if (collect(changed)) changed = rescan();
+            Set<Path> candidates = new TreeSet<>();
+            for (Path path : changed) {
+                if (Files.isDirectory(path)) {
+                    // created or moved in: its files came before it was watched
+                    for (Root root : roots) {
+                        if (root.covers(path)) candidates.addAll(register(path, root));
+                    }
+                } else if (files.containsKey(path) || matches(path)) {
+                    candidates.add(path);
+                } else {
+                    // a directory that is gone takes its files with it
+                    candidates.addAll(below(path));
+                }
+            }
+            if (!candidates.isEmpty()) check(candidates, true);
+        }
+    }
+
+    void close() {
+        pool.shutdownNow();
+        try {
+            watcher.close();
+        } catch (IOException e) {
+            // nothing is watched any more either way
+        }
+    }
+
+    // waits for events and gathers their paths until the tree is quiet; true when events were lost
+    private boolean collect(Set<Path> changed) throws InterruptedException {
+        WatchKey key = watcher.take();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(MAX_DELAY_MILLIS);
+        boolean overflow = false;
+        while (key != null) {
+            Path directory = directories.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    overflow = true;
+                } else if (directory != null) {
+                    changed.add(directory.resolve((Path) event.context()));
+                }
+            }
+            if (!key.reset()) directories.remove(key);
+            long left = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (left <= 0) break;
+            key = watcher.poll(Math.min(QUIET_MILLIS, left), TimeUnit.MILLISECONDS);
+        }
+        return overflow;
+    }
+
+    // after lost events every file is a candidate; unchanged ones are skipped by their time stamp
+    private Set<Path> rescan() throws InterruptedException {
+        Set<Path> all = new TreeSet<>(files.keySet());
+        for (Root root : roots) {
+            try {
+                all.addAll(register(root.base, root));
+            } catch (IOException e) {
+                // the root is gone; its files are dropped as deleted
+            }
+        }
+        return all;
+    }
+
+    // watches the directory, or the file's parent, and returns the matching files found there
+    private List<Path> register(Path start, Root root) throws IOException {
+        if (root.matcher == null) {
+            Path parent = start.getParent() != null ? start.getParent() : Paths.get("");
+            if (Files.isDirectory(parent)) directories.put(watch(parent), parent);
+            return Files.isRegularFile(start) ? List.of(start) : List.of();
+        }
+        if (!Files.isDirectory(start)) return List.of();
+        List<Path> found = new ArrayList<>();
+        try (Stream<Path> paths = Files.walk(start)) {
+            for (Path path : paths.collect(Collectors.toList())) {
+                if (Files.isDirectory(path)) {
+                    directories.put(watch(path), path);
+                } else if (root.matches(path) && Files.isRegularFile(path)) {
+                    found.add(path);
+                }
+            }
+        }
+        return found;
+    }
+
+    private WatchKey watch(Path directory) throws IOException {
+        return directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+    }
+
+    private boolean matches(Path path) {
+        for (Root root : roots) {
+            if (root.matches(path)) return true;
+        }
+        return false;
+    }
+
+    // the known files below a path; paths sharing its prefix as a string sort together
+    private List<Path> below(Path directory) {
+        List<Path> found = new ArrayList<>();
+        String prefix = directory.toString();
+        for (Path path : files.tailMap(directory, false).keySet()) {
+            if (!path.toString().startsWith(prefix)) break;
+            if (path.startsWith(directory)) found.add(path);
+        }
+        return found;
+    }
+
+    /**
+     * Re-checks the candidates whose size or time stamp changed, drops the ones that are gone,
+     * and prints the verdicts that changed, in path order. Returns the number of failing files.
+     */
+    private int check(Set<Path> candidates, boolean report) throws InterruptedException {
+        long start = System.nanoTime();
+        Map<Path, Future<FileState>> running = new TreeMap<>();
+        List<FileState> removed = new ArrayList<>();
+        for (Path path : candidates) {
+            FileState old = files.get(path);
+            BasicFileAttributes attributes = attributes(path);
+            if (attributes == null || !attributes.isRegularFile() || !matches(path)) {
+                if (old != null) removed.add(old);
+                continue;
+            }
+            if (old != null && old.size == attributes.size()
+                    && old.modified == attributes.lastModifiedTime().toMillis()) continue;
+            running.put(path, pool.submit(() -> analyze(path, attributes)));
+        }
+        if (running.isEmpty() && removed.isEmpty()) return 0;
+
+        // the verdicts before this round of every file it may change
+        Map<Path, String> before = new TreeMap<>();
+        Set<FileState> touched = new LinkedHashSet<>();
+        List<FileState> analyzed = new ArrayList<>(running.size());
+        for (Future<FileState> future : running.values()) {
+            FileState state = get(future);
+            if (state.verdict == null) {
+                // vanished while being read
+                FileState old = files.get(state.path);
+                if (old != null) removed.add(old);
+            } else {
+                analyzed.add(state);
+            }
+        }
+        for (FileState state : removed) {
+            before.put(state.path, state.verdict);
+            files.remove(state.path);
+            undeclare(state, touched);
+        }
+        for (FileState state : analyzed) {
+            FileState old = files.put(state.path, state);
+            before.put(state.path, old != null ? old.verdict : null);
+            if (old != null) undeclare(old, touched);
+            declare(state, touched);
+            touched.add(state);
+        }
+        for (FileState state : touched) {
+            if (files.get(state.path) != state) continue;
+            if (!before.containsKey(state.path)) before.put(state.path, state.verdict);
+            if (project) state.verdict = projectVerdict(state);
+        }
+
+        int failing = 0;
+        int changed = 0;
+        StringBuilder out = new StringBuilder();
+        for (Map.Entry<Path, String> entry : before.entrySet()) {
+            FileState state = files.get(entry.getKey());
+            String now = state != null ? state.verdict : null;
+            if (now != null && !now.equals("passed")) failing++;
+            if (now == null ? entry.getValue() == null : now.equals(entry.getValue())) continue;
+            if (!report && "passed".equals(now)) continue;
+            if (changed++ >= MAX_LINES) continue;
+            if (now == null) {
+                out.append("- ").append(entry.getKey()).append('\n');
+            } else {
+                out.append(entry.getValue() == null ? "+ " : "~ ").append(entry.getKey()).append(": ").append(now).append('\n');
+            }
+        }
+        if (changed > MAX_LINES) out.append("... and ").append(changed - MAX_LINES).append(" more\n");
+        if (report) {
+            out.append("Checked ").append(analyzed.size()).append(" file(s), dropped ").append(removed.size())
+                    .append(", ").append(changed).append(" verdict(s) changed in ")
+                    .append(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).append(" ms\n");
+        }
+        System.out.print(out);
+        System.out.flush();
+        return failing;
+    }
+
+    private static BasicFileAttributes attributes(Path path) {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static FileState get(Future<FileState> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    // runs on the pool; the verdict stays null when the file is gone
+    private FileState analyze(Path path, BasicFileAttributes attributes) {
+        FileState state = new FileState(path);
+        state.size = attributes.size();
+        state.modified = attributes.lastModifiedTime().toMillis();
+        List<String> names = new ArrayList<>();
+        long[][] positions = {new long[16]};
+        try {
+            Diagnostics diagnostics = new Diagnostics();
+            DeclarationChecker checker = new DeclarationChecker();
+            checker.setDiagnostics(diagnostics);
+            if (project) {
+                checker.setListener((symbols, symbol, tokenCount) -> {
+                    if (names.size() == positions[0].length) positions[0] = Arrays.copyOf(positions[0], names.size() * 2);
+                    positions[0][names.size()] = symbols.position(symbol);
+                    names.add(symbols.nameString(symbol));
+                });
+            }
+            CompilationResult result = checker.finish(StreamingLexer.tokenize(path, checker, checker::isFailed));
+            if (!diagnostics.isEmpty()) resolve(path, diagnostics);
+            if (!result.isSuccessful()) {
+                state.phase = result.getFailedPhase();
+                state.offset = result.getErrorOffset();
+                state.message = result.getMessage();
+                for (int i = 0; i < diagnostics.size(); i++) {
+                    if (diagnostics.offset(i) == state.offset) {
+                        state.line = diagnostics.line(i);
+                        state.column = diagnostics.column(i);
+                        break;
+                    }
+                }
+            }
+            if (!names.isEmpty()) {
+                // the places of every declaration, for the duplicates other files may report
+                Diagnostics places = new Diagnostics(Integer.MAX_VALUE);
+                for (int i = 0; i < names.size(); i++) places.add(Phase.SEMANTIC, positions[0][i], "");
+                resolve(path, places);
+                state.names = names.toArray(new String[0]);
+                state.positions = Arrays.copyOf(positions[0], names.size());
+                state.places = new long[names.size()];
+                for (int i = 0; i < names.size(); i++) {
+                    // declarations come in source order, as do the resolved entries
+                    state.places[i] = (long) places.line(i) << 32 | places.column(i);
+                }
+            }
+            state.verdict = format(state.phase, state.line, state.column, state.message);
+        } catch (NoSuchFileException e) {
+            state.verdict = null;
+        } catch (IOException | RuntimeException e) {
+            state.verdict = "error: " + BatchCompiler.describe(e);
+        }
+        return state;
+    }
+
+    private static void resolve(Path path, Diagnostics diagnostics) throws IOException {
+        try (Reader reader = StreamingLexer.openReader(path)) {
+            diagnostics.resolvePositions(reader);
+        }
+    }
+
+    private static String format(Phase phase, int line, int column, String message) {
+        if (phase == null) return "passed";
+        StringBuilder out = new StringBuilder();
+        if (line > 0) out.append(line).append(':').append(column).append(": ");
+        return out.append(phase.getDisplayName()).append(" error: ").append(message).toString();
+    }
+
+    // adds the file's names; every file declaring a name whose owner changes must be re-judged
+    private void declare(FileState state, Set<FileState> touched) {
+        for (int i = 0; i < state.names.length; i++) {
+            Declarers list = declarers.computeIfAbsent(state.names[i], Declarers::new);
+            // one String per name, whatever the number of files declaring it
+            state.names[i] = list.name;
+            int at = list.indexOf(state.path);
+            list.insert(at, state, i);
+            if (at == 0 && list.size > 1) touch(list, touched);
+        }
+    }
+
+    private void undeclare(FileState state, Set<FileState> touched) {
+        for (String name : state.names) {
+            Declarers list = declarers.get(name);
+            int at = list.indexOf(state.path);
+            list.remove(at);
+            if (list.size == 0) {
+                declarers.remove(name);
+            } else if (at == 0) {
+                touch(list, touched);
+            }
+        }
+    }
+
+    private static void touch(Declarers list, Set<FileState> touched) {
+        for (int i = 0; i < list.size; i++) touched.add(list.files[i]);
+    }
+
+    // the file's own verdict, unless a duplicate of another file's variable comes first
+    private String projectVerdict(FileState state) {
+        int earliest = -1;
+        Declarers owner = null;
+        for (int i = 0; i < state.names.length; i++) {
+            Declarers list = declarers.get(state.names[i]);
+            if (list.files[0] != state && (earliest < 0 || state.positions[i] < state.positions[earliest])) {
+                earliest = i;
+                owner = list;
+            }
+        }
+        boolean replaces = earliest >= 0 && (state.phase == null
+                || (state.phase == Phase.SEMANTIC && state.offset > state.positions[earliest]));
+        if (!replaces) return format(state.phase, state.line, state.column, state.message);
+        long place = owner.files[0].places[owner.slots[0]];
+        String message = ProjectAnalyzer.duplicateMessage(owner.name, owner.files[0].path,
+                (int) (place >>> 32), (int) place);
+        long own = state.places[earliest];
+        return format(Phase.SEMANTIC, (int) (own >>> 32), (int) own, message);
+    }
+}
@@ -0,0 +1,285 @@
+package com.analyzer;
+
+import com.model.TokenKind;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Lexes encoded bytes without decoding them first. Lines end at LF, CRLF or a lone CR, and
+ * are lexed whole, straight from the buffer: ASCII tokens are handed to the sink as views over
+ * the bytes. Only a line holding a non-ASCII byte is decoded, from the token that contains it
+ * to the end of the line. A line longer than a chunk is decoded a chunk at a time into a
+ * {@link StreamingLexer} instead, so no buffer ever holds more than about two chunks. Gives the
+ * same tokens and char offsets as {@link StreamingLexer} over the decoded text, for any charset
+ * in which ASCII bytes always stand for themselves.
+ */
+public class ByteLexer {
+    private static final boolean[] WHITESPACE = new boolean[128];
+
+    static {
+        for (char c = 0; c < 128; c++) WHITESPACE[c] = Character.isWhitespace(c);
+    }
+
+    private final StreamingLexer.TokenSink sink;
+    private final AsciiWindow window = new AsciiWindow();
+    private final CharsetDecoder decoder = StreamingLexer.newDecoder();
+    private CharBuffer decoded = CharBuffer.allocate(256);
+    private byte[] scratch = new byte[0];
+    // char offset of the next unread byte
+    private long position;
+    private boolean lineStart = true;
+    // lexes the rest of a line longer than a chunk, or null
+    private StreamingLexer longLine;
+
+    public ByteLexer(StreamingLexer.TokenSink sink) {
+        this.sink = sink;
+    }
+
+    // resume lexing at an absolute char position, e.g. right after a ';' in the middle of a line
+    public ByteLexer(StreamingLexer.TokenSink sink, long position, boolean atLineStart) {
+        this.sink = sink;
+        this.position = position;
+        this.lineStart = atLineStart;
+    }
+
+    // the charsets whose ASCII bytes can never be part of a multi-byte character
+    public static boolean supports(Charset charset) {
+        return charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.US_ASCII)
+                || charset.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Lexes the file in the platform charset a buffer at a time, until the end or until stop
+     * answers true after a buffer; returns the char position reached.
+     */
+    public static long tokenize(Path path, StreamingLexer.TokenSink sink, BooleanSupplier stop) throws IOException {
+        ByteLexer lexer = new ByteLexer(sink);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buf = ByteBuffer.allocate(StreamingLexer.CHUNK_SIZE);
+            boolean more = true;
+            while (more && !stop.getAsBoolean()) {
+                more = channel.read(buf) != -1;
+                buf.flip();
+                lexer.feed(buf, !more);
+                buf.compact();
+            }
+        }
+        return lexer.getPosition();
+    }
+
+    public long getPosition() { return position; }
+
+    /**
+     * Lexes every complete line between the buffer's position and limit, and leaves the
+     * position at the start of the incomplete last line, which the next call must present
+     * again. An incomplete line of a chunk or more is lexed as far as it goes instead. With
+     * endOfInput the last line is lexed too.
+     */
+    public void feed(ByteBuffer in, boolean endOfInput) {
+        byte[] bytes;
+        // array index of the buffer's index 0
+        int shift;
+        if (in.hasArray()) {
+            bytes = in.array();
+            shift = in.arrayOffset();
+        } else {
+            // mapped or direct: lexing a heap copy is faster than per-byte buffer access
+            if (scratch.length < in.remaining()) scratch = new byte[in.remaining()];
+            in.get(in.position(), scratch, 0, in.remaining());
+            bytes = scratch;
+            shift = -in.position();
+        }
+        int from = in.position() + shift;
+        int limit = in.limit() + shift;
+        if (longLine != null) from = continueLine(bytes, from, limit, endOfInput);
+        while (longLine == null && from < limit) {
+            int end = from;
+            byte b = 0;
+            while (end < limit && (b = bytes[end]) != '\n' && b != '\r') end++;
+            int next;
+            if (end == limit) {
+                if (!endOfInput) break;
+                next = limit;
+            } else if (b == '\r' && end + 1 == limit && !endOfInput) {
+                // a CR may be the first half of a CRLF
+                break;
+            } else {
+                next = b == '\r' && end + 1 < limit && bytes[end + 1] == '\n' ? end + 2 : end + 1;
+            }
+            lexLine(bytes, from, end, next);
+            from = next;
+        }
+        if (longLine == null && limit - from >= StreamingLexer.CHUNK_SIZE) {
+            longLine = new StreamingLexer(sink, position, lineStart);
+            lineStart = true;
+            decoder.reset();
+            from = continueLine(bytes, from, limit, endOfInput);
+        }
+        in.position(from - shift);
+    }
+
+    // lexes all of in, e.g. a mapped file, a chunk at a time until stop answers true
+    public void feed(ByteBuffer in, BooleanSupplier stop) {
+        int end = in.limit();
+        int limit = in.position();
+        while (limit < end && !stop.getAsBoolean()) {
+            limit = (int) Math.min(end, (long) Math.max(limit, in.position()) + StreamingLexer.CHUNK_SIZE);
+            in.limit(limit);
+            feed(in, limit == end);
+        }
+    }
+
+    // [from, end) is the line without its break, which runs up to next
+    private void lexLine(byte[] bytes, int from, int end, int next) {
+        long base = position - from;
+        int s = from;
+        if (lineStart) {
+            while (s < end && isControlOrSpace(bytes[s])) s++;
+        }
+        int e = end;
+        while (e > s && isControlOrSpace(bytes[e - 1])) e--;
+        lineStart = true;
+
+        byte quote = 0;
+        int tokenStart = -1;
+        for (int i = s; i < e; i++) {
+            byte b = bytes[i];
+            if (b < 0) {
+                position = base + next + decodeRest(bytes, tokenStart >= 0 ? tokenStart : i, e, base);
+                return;
+            }
+            if (quote != 0) {
+                // a non-ASCII escaped char is left for decodeRest()
+                if (b == '\\' && i + 1 < e && bytes[i + 1] >= 0) {
+                    i++;
+                } else if (b == quote) {
+                    sink.token(TokenKind.VALUE, window.set(bytes, tokenStart, i + 1), base + tokenStart);
+                    quote = 0;
+                    tokenStart = -1;
+                }
+                continue;
+            }
+            if (tokenStart >= 0) {
+                if (!WHITESPACE[b] && b != '=' && b != ';' && b != '"' && b != '\''
+                        && (!StreamingLexer.isOperator((char) b)
+                            || StreamingLexer.isExponentSign(window.set(bytes, tokenStart, i), (char) b))) continue;
+                endWord(bytes, tokenStart, i, base);
+                tokenStart = -1;
+            }
+            if (WHITESPACE[b]) continue;
+            if (b == ';') {
+                sink.token(TokenKind.DELIMITER, ";", base + i);
+            } else if (b == '=' || StreamingLexer.isOperator((char) b)) {
+                if (i + 1 < e && StreamingLexer.pairs((char) b, (char) bytes[i + 1])) {
+                    sink.token(TokenKind.OPERATOR, StreamingLexer.pair((char) b), base + i);
+                    i++;
+                } else {
+                    StreamingLexer.emitOperator(sink, (char) b, base + i);
+                }
+            } else {
+                if (b == '"' || b == '\'') quote = b;
+                tokenStart = i;
+            }
+        }
+        if (quote != 0) {
+            // unterminated literal runs to the end of the line
+            sink.token(TokenKind.VALUE, window.set(bytes, tokenStart, e), base + tokenStart);
+        } else if (tokenStart >= 0) {
+            endWord(bytes, tokenStart, e, base);
+        }
+        position = base + next;
+    }
+
+    /**
+     * Decodes the long line's bytes from from, up to and including its break if it is before
+     * limit, into its lexer; returns where it stopped, short of limit only by the start of a
+     * character that continues past it.
+     */
+    private int continueLine(byte[] bytes, int from, int limit, boolean endOfInput) {
+        int end = from;
+        while (end < limit && bytes[end] != '\n' && bytes[end] != '\r') end++;
+        boolean last = end < limit || endOfInput;
+        ByteBuffer in = ByteBuffer.wrap(bytes, from, Math.min(end + 1, limit) - from);
+        if (decoded.capacity() < StreamingLexer.CHUNK_SIZE) decoded = CharBuffer.allocate(StreamingLexer.CHUNK_SIZE);
+        CoderResult result;
+        do {
+            decoded.clear();
+            result = decoder.decode(in, decoded, last);
+            if (last && result.isUnderflow()) decoder.flush(decoded);
+            decoded.flip();
+            longLine.feed(decoded.array(), decoded.position(), decoded.remaining());
+        } while (result.isOverflow());
+        if (end == limit && endOfInput) longLine.finish();
+        position = longLine.getPosition();
+        // the break reset the lexer, so the next line starts over here
+        if (last) longLine = null;
+        return in.position();
+    }
+
+    private void endWord(byte[] bytes, int start, int end, long base) {
+        window.set(bytes, start, end);
+        sink.token(LexicalAnalyzer.classify(window), window, base + start);
+    }
+
+    /**
+     * Hands the decoded bytes [from, end) of a line, which end at a visible char, to a char
+     * lexer; returns how many more chars than bytes the line has.
+     */
+    private long decodeRest(byte[] bytes, int from, int end, long base) {
+        ByteBuffer in = ByteBuffer.wrap(bytes, from, end - from);
+        int needed = (int) (in.remaining() * decoder.maxCharsPerByte()) + 1;
+        if (decoded.capacity() < needed) decoded = CharBuffer.allocate(needed);
+        decoded.clear();
+        decoder.reset();
+        decoder.decode(in, decoded, true);
+        decoder.flush(decoded);
+        decoded.flip();
+        StreamingLexer lexer = new StreamingLexer(sink, base + from, false);
+        lexer.feed(decoded);
+        lexer.finish();
+        return decoded.limit() - (end - from);
+    }
+
+    private static boolean isControlOrSpace(byte b) {
+        return b >= 0 && b <= ' ';
+    }
+
+    // CharSequence view over ASCII bytes
+    private static final class AsciiWindow implements CharSequence {
+        private byte[] bytes;
+        private int start;
+        private int end;
+
+        AsciiWindow set(byte[] bytes, int start, int end) {
+            this.bytes = bytes;
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        @Override
+        public int length() { return end - start; }
+
+        @Override
+        public char charAt(int index) { return (char) bytes[start + index]; }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString().substring(from, to);
+        }
+
+        @Override
+        public String toString() {
+            return new String(bytes, start, end - start, StandardCharsets.ISO_8859_1);
+        }
+    }
+}
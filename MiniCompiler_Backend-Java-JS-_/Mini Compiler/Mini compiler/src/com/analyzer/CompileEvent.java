@@ -0,0 +1,22 @@
+package com.analyzer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// Flight Recorder event spanning one compilation
+@Name("com.minicompiler.Compile")
+@Label("Compile")
+@Category("MiniCompiler")
+@StackTrace(false)
+class CompileEvent extends jdk.jfr.Event {
+    @Label("Failed Phase")
+    String failedPhase;
+
+    @Label("Tokens")
+    long tokens;
+
+    @Label("Declarations")
+    long declarations;
+}
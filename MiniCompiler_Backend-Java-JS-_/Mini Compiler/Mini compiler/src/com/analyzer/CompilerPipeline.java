@@ -0,0 +1,122 @@
+package com.analyzer;
+
+import com.model.CompilationResult;
+import com.model.Diagnostics;
+import com.model.PhaseMetrics;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Fused lex/parse/check entry point: tokens go straight from the lexer into a
+ * {@link DeclarationChecker}, and reading stops at the first error unless a
+ * {@link Diagnostics} list is given to collect every error in one pass. A file or reader pass
+ * on a thread that gets interrupted gives up between chunks with a CancellationException.
+ */
+public class CompilerPipeline {
+    public static CompilationResult compile(CharSequence source) {
+        return compile(source, null);
+    }
+
+    public static CompilationResult compile(CharSequence source, Diagnostics diagnostics) {
+        DeclarationChecker checker = new DeclarationChecker();
+        checker.setDiagnostics(diagnostics);
+        StreamingLexer lexer = new StreamingLexer(checker);
+        for (int off = 0; off < source.length() && !checker.isFailed(); off += StreamingLexer.CHUNK_SIZE) {
+            lexer.feed(source.subSequence(off, Math.min(source.length(), off + StreamingLexer.CHUNK_SIZE)));
+        }
+        lexer.finish();
+        return checker.finish(lexer.getPosition());
+    }
+
+    public static CompilationResult compile(Reader reader) throws IOException {
+        return compile(reader, null, null);
+    }
+
+    /**
+     * Also adds the tokens, declarations and input of each phase to metrics, with the time and
+     * allocation of the pass sampled after every chunk. The pass is the same whether it is
+     * measured or not, as it is when the Flight Recorder events are enabled.
+     */
+    public static CompilationResult compile(Reader reader, PhaseMetrics metrics, Diagnostics diagnostics)
+            throws IOException {
+        CompileEvent event = new CompileEvent();
+        event.begin();
+        PhaseMetrics phases = measured(metrics);
+        PhaseClock clock = phases != null ? new PhaseClock() : null;
+        DeclarationChecker checker = new DeclarationChecker();
+        checker.setDiagnostics(diagnostics);
+        StreamingLexer lexer = new StreamingLexer(checker);
+        Thread caller = Thread.currentThread();
+        char[] buf = new char[StreamingLexer.CHUNK_SIZE];
+        int n;
+        while (!stopped(checker, caller) && (n = reader.read(buf)) != -1) {
+            lexer.feed(buf, 0, n);
+            if (clock != null) clock.sample(phases, checker, n);
+        }
+        lexer.finish();
+        if (clock != null) clock.sample(phases, checker, 0);
+        return commit(event, checker.finish(lexer.getPosition()), phases, metrics);
+    }
+
+    public static CompilationResult compile(Path path) throws IOException {
+        return compile(path, null, null);
+    }
+
+    // lexes the file's bytes without decoding them when the charset allows
+    public static CompilationResult compile(Path path, PhaseMetrics metrics, Diagnostics diagnostics)
+            throws IOException {
+        DeclarationChecker checker = new DeclarationChecker();
+        checker.setDiagnostics(diagnostics);
+        return run(path, checker, metrics);
+    }
+
+    // runs the file through a checker set up by the caller
+    static CompilationResult run(Path path, DeclarationChecker checker, PhaseMetrics metrics) throws IOException {
+        CompileEvent event = new CompileEvent();
+        event.begin();
+        PhaseMetrics phases = measured(metrics);
+        Thread caller = Thread.currentThread();
+        long end;
+        if (phases == null) {
+            end = StreamingLexer.tokenize(path, checker, () -> stopped(checker, caller));
+        } else {
+            // the lexer asks before every chunk; the input it covered is only known at the end
+            PhaseClock clock = new PhaseClock();
+            end = StreamingLexer.tokenize(path, checker, () -> {
+                clock.sample(phases, checker, 0);
+                return stopped(checker, caller);
+            });
+            clock.sample(phases, checker, end);
+        }
+        return commit(event, checker.finish(end), phases, metrics);
+    }
+
+    // whether to stop after a chunk; the interrupt stays set for the caller to see
+    static boolean stopped(DeclarationChecker checker, Thread caller) {
+        if (caller.isInterrupted()) throw new CancellationException();
+        return checker.isFailed();
+    }
+
+    // where to measure a pass: null when neither metrics nor the Flight Recorder events want it
+    static PhaseMetrics measured(PhaseMetrics metrics) {
+        return metrics != null || PhaseClock.eventsEnabled() ? new PhaseMetrics() : null;
+    }
+
+    private static CompilationResult commit(CompileEvent event, CompilationResult result, PhaseMetrics phases,
+                                            PhaseMetrics metrics) {
+        event.end();
+        if (phases != null) {
+            PhaseClock.emit(phases);
+            if (metrics != null) metrics.add(phases);
+        }
+        if (event.shouldCommit()) {
+            event.failedPhase = result.isSuccessful() ? null : result.getFailedPhase().getDisplayName();
+            event.tokens = result.getTokenCount();
+            event.declarations = result.getDeclarationCount();
+            event.commit();
+        }
+        return result;
+    }
+}
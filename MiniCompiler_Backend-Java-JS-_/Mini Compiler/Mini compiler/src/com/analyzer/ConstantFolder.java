@@ -0,0 +1,484 @@
+package com.analyzer;
+
+import com.analyzer.LiteralValidator.Verdict;
+import com.model.DataType;
+import com.model.SymbolTable;
+import java.util.Arrays;
+
+/**
+ * Type-checks an initializer expression and folds it to one constant, a node at a time in
+ * arena order, so every operand is folded before its operator and nothing recurses.
+ *
+ * Operators work as in Java: byte, short and char operands are promoted to int, and mixed
+ * operands to the wider of int, long, float and double; + with a String operand concatenates.
+ * Unlike Java, integer arithmetic never wraps: an int or long result that does not fit its
+ * type, or a division by zero, is an error. Literals keep the leniency of plain initializers:
+ * a decimal too large for an int is a long, and a real without a d suffix, or a variable of a
+ * type narrower than double, may initialize a float. A lone literal is checked exactly as it
+ * always was, by {@link LiteralValidator}.
+ */
+final class ConstantFolder {
+    private static final int FAILED = -1;
+    private static final DataType[] TYPES = DataType.values();
+
+    private final SymbolTable symbols;
+    private final SymbolValues values;
+    // per node: its DataType code or FAILED, its value as in SymbolValues, and whether it is
+    // a double that may not initialize a float
+    private int[] types = new int[64];
+    private long[] bits = new long[64];
+    private String[] strings = new String[64];
+    private boolean[] doubles = new boolean[64];
+
+    private long value;
+    private String string;
+    private long errorOffset;
+    private String errorMessage;
+    private boolean unresolved;
+
+    ConstantFolder(SymbolTable symbols, SymbolValues values) {
+        this.symbols = symbols;
+        this.values = values;
+    }
+
+    /**
+     * Folds the nodes [first, root] for a variable of the given type. Returns whether the
+     * value suits the type, or null after an error inside the expression; the error has no
+     * message when the expression uses a variable whose own initializer failed.
+     */
+    Verdict fold(DataType type, TokenQueue tokens, ExpressionArena arena, int first, int root) {
+        errorMessage = null;
+        unresolved = false;
+        string = null;
+        if (first == root && arena.op(root) == ExpressionArena.LITERAL) {
+            CharSequence text = tokens.text(arena.token(root));
+            Verdict verdict = LiteralValidator.check(type, text);
+            if (verdict == Verdict.VALID) literalValue(type, text);
+            return verdict;
+        }
+        if (types.length <= root) {
+            int capacity = Math.max(root + 1, types.length * 2);
+            types = Arrays.copyOf(types, capacity);
+            bits = Arrays.copyOf(bits, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+            doubles = Arrays.copyOf(doubles, capacity);
+        }
+        for (int node = first; node <= root; node++) {
+            doubles[node] = false;
+            strings[node] = null;
+            boolean folded;
+            switch (arena.op(node)) {
+                case ExpressionArena.LITERAL:
+                    folded = literal(node, tokens.text(arena.token(node)), tokens.start(arena.token(node)), false);
+                    break;
+                case ExpressionArena.NEGATIVE_LITERAL:
+                    folded = literal(node, tokens.text(arena.token(node)), tokens.start(arena.token(node)), true);
+                    break;
+                case ExpressionArena.VARIABLE:
+                    folded = variable(node, tokens.text(arena.token(node)), tokens.start(arena.token(node)));
+                    break;
+                default:
+                    folded = operator(node, arena, tokens);
+                    break;
+            }
+            if (!folded) {
+                types[node] = FAILED;
+                return null;
+            }
+        }
+        return assign(type, root);
+    }
+
+    // the folded value, converted to the declared type, after fold() returned VALID
+    long getValue() { return value; }
+    String getString() { return string; }
+    long getErrorOffset() { return errorOffset; }
+    String getErrorMessage() { return errorMessage; }
+    // whether the error was a name that is not declared before the expression
+    boolean isUnresolved() { return unresolved; }
+
+    // a folded value as a literal of its type
+    static String literal(DataType type, long bits, String string) {
+        switch (type) {
+            case FLOAT: return Float.toString((float) Double.longBitsToDouble(bits));
+            case DOUBLE: return Double.toString(Double.longBitsToDouble(bits));
+            case CHAR: return appendChar(new StringBuilder("'"), (char) bits).append('\'').toString();
+            case BOOLEAN: return bits != 0 ? "true" : "false";
+            case STRING: return '"' + string + '"';
+            default: return Long.toString(bits);
+        }
+    }
+
+    private void literalValue(DataType type, CharSequence text) {
+        switch (type) {
+            case FLOAT:
+            case DOUBLE:
+                value = Double.doubleToRawLongBits(LiteralValidator.realValue(type, text));
+                break;
+            case CHAR:
+                value = LiteralValidator.charValue(text);
+                break;
+            case BOOLEAN:
+                value = text.charAt(0) == 't' ? 1 : 0;
+                break;
+            case STRING:
+                value = 0;
+                string = unquote(text);
+                break;
+            default:
+                value = LiteralValidator.integerValue(type, text);
+                break;
+        }
+    }
+
+    private boolean literal(int node, CharSequence text, long offset, boolean negative) {
+        switch (LexemeClassifier.classify(text)) {
+            case INT_LITERAL:
+                return integer(node, text, offset, negative);
+            case FLOAT_LITERAL:
+                char suffix = (char) (text.charAt(text.length() - 1) | 0x20);
+                DataType type = suffix == 'f' ? DataType.FLOAT : DataType.DOUBLE;
+                if (LiteralValidator.check(type, text) != Verdict.VALID) {
+                    return error(offset, "Literal " + (negative ? "-" : "") + text + " is out of range");
+                }
+                double real = LiteralValidator.realValue(type, text);
+                set(node, type, Double.doubleToRawLongBits(negative ? -real : real));
+                doubles[node] = suffix == 'd';
+                return true;
+            case BOOLEAN_LITERAL:
+                set(node, DataType.BOOLEAN, text.charAt(0) == 't' ? 1 : 0);
+                return true;
+            case CHAR_LITERAL:
+                if (LiteralValidator.check(DataType.CHAR, text) != Verdict.VALID) {
+                    return error(offset, "Invalid char literal " + text);
+                }
+                set(node, DataType.CHAR, LiteralValidator.charValue(text));
+                return true;
+            default:
+                set(node, DataType.STRING, 0);
+                strings[node] = unquote(text);
+                return true;
+        }
+    }
+
+    private boolean integer(int node, CharSequence text, long offset, boolean negative) {
+        boolean suffixed = (text.charAt(text.length() - 1) | 0x20) == 'l';
+        boolean decimal = !(text.length() > 2 && text.charAt(0) == '0' && "xXbB".indexOf(text.charAt(1)) >= 0);
+        boolean fits = LiteralValidator.check(DataType.LONG, text) == Verdict.VALID;
+        if (negative && decimal) {
+            // the sign is part of the literal, so the smallest int and long can be written
+            long magnitude = fits ? LiteralValidator.integerValue(DataType.LONG, text) : 0;
+            if (!fits && !digits(text).equals("9223372036854775808")) {
+                return error(offset, "Literal -" + text + " is out of range");
+            }
+            long v = fits ? -magnitude : Long.MIN_VALUE;
+            set(node, suffixed || v < Integer.MIN_VALUE ? DataType.LONG : DataType.INT, v);
+            return true;
+        }
+        if (!fits) return error(offset, "Literal " + text + " is out of range");
+        if (!suffixed && LiteralValidator.check(DataType.INT, text) == Verdict.VALID) {
+            set(node, DataType.INT, LiteralValidator.integerValue(DataType.INT, text));
+        } else {
+            set(node, DataType.LONG, LiteralValidator.integerValue(DataType.LONG, text));
+        }
+        // a hex or binary literal after '-' is negated like any other operand
+        return !negative || negate(node, node, offset);
+    }
+
+    private boolean variable(int node, CharSequence name, long offset) {
+        int symbol = symbols.lookup(name);
+        if (symbol < 0) {
+            unresolved = true;
+            return error(offset, "Unknown variable '" + name + "'");
+        }
+        byte state = values.state(symbol);
+        if (state == SymbolValues.NONE) return error(offset, "Variable '" + name + "' has no value");
+        if (state == SymbolValues.FAILED) return silentError();
+        DataType type = DataType.fromCode(symbols.typeCode(symbol));
+        set(node, type == DataType.BYTE || type == DataType.SHORT ? DataType.INT : type, values.bits(symbol));
+        strings[node] = values.string(symbol);
+        doubles[node] = type == DataType.DOUBLE;
+        return true;
+    }
+
+    private boolean operator(int node, ExpressionArena arena, TokenQueue tokens) {
+        int op = arena.op(node);
+        int left = arena.left(node);
+        int right = arena.right(node);
+        long offset = tokens.start(arena.token(node));
+        if (right < 0) {
+            switch (op) {
+                case ExpressionArena.NOT:
+                    if (types[left] != DataType.BOOLEAN.code()) return typeError(offset, "!", left, -1);
+                    set(node, DataType.BOOLEAN, bits[left] ^ 1);
+                    return true;
+                case ExpressionArena.PLUS:
+                    if (!isNumeric(types[left])) return typeError(offset, "+", left, -1);
+                    set(node, TYPES[promote(types[left], types[left])], bits[left]);
+                    doubles[node] = doubles[left];
+                    return true;
+                default:
+                    if (!isNumeric(types[left])) return typeError(offset, "-", left, -1);
+                    return negate(node, left, offset);
+            }
+        }
+        String symbol = operatorText(op);
+        int l = types[left];
+        int r = types[right];
+        if (op == ExpressionArena.ADD && (l == DataType.STRING.code() || r == DataType.STRING.code())) {
+            StringBuilder text = new StringBuilder();
+            appendString(text, left);
+            appendString(text, right);
+            set(node, DataType.STRING, 0);
+            strings[node] = text.toString();
+            return true;
+        }
+        if (op == ExpressionArena.AND || op == ExpressionArena.OR) {
+            if (l != DataType.BOOLEAN.code() || r != DataType.BOOLEAN.code()) return typeError(offset, symbol, left, right);
+            set(node, DataType.BOOLEAN, op == ExpressionArena.AND ? bits[left] & bits[right] : bits[left] | bits[right]);
+            return true;
+        }
+        if ((op == ExpressionArena.EQUAL || op == ExpressionArena.NOT_EQUAL)
+                && l == DataType.BOOLEAN.code() && r == DataType.BOOLEAN.code()) {
+            set(node, DataType.BOOLEAN, (bits[left] == bits[right]) == (op == ExpressionArena.EQUAL) ? 1 : 0);
+            return true;
+        }
+        if (!isNumeric(l) || !isNumeric(r)) return typeError(offset, symbol, left, right);
+        int type = promote(l, r);
+        if (op >= ExpressionArena.LESS) {
+            set(node, DataType.BOOLEAN, compare(op, type, left, right) ? 1 : 0);
+            return true;
+        }
+        doubles[node] = doubles[left] || doubles[right];
+        if (type == DataType.INT.code() || type == DataType.LONG.code()) {
+            return integerArithmetic(node, op, type == DataType.INT.code(), bits[left], bits[right], offset, symbol);
+        }
+        double a = real(left);
+        double b = real(right);
+        double result;
+        switch (op) {
+            case ExpressionArena.ADD: result = a + b; break;
+            case ExpressionArena.SUBTRACT: result = a - b; break;
+            case ExpressionArena.MULTIPLY: result = a * b; break;
+            case ExpressionArena.DIVIDE: result = a / b; break;
+            default: result = a % b; break;
+        }
+        // float operands give a float result, rounded once as in Java
+        if (type == DataType.FLOAT.code()) {
+            float x = (float) a;
+            float y = (float) b;
+            switch (op) {
+                case ExpressionArena.ADD: result = x + y; break;
+                case ExpressionArena.SUBTRACT: result = x - y; break;
+                case ExpressionArena.MULTIPLY: result = x * y; break;
+                case ExpressionArena.DIVIDE: result = x / y; break;
+                default: result = x % y; break;
+            }
+        }
+        set(node, TYPES[type], Double.doubleToRawLongBits(result));
+        return true;
+    }
+
+    private boolean integerArithmetic(int node, int op, boolean isInt, long a, long b, long offset, String symbol) {
+        long result;
+        boolean overflow;
+        switch (op) {
+            case ExpressionArena.ADD:
+                result = a + b;
+                overflow = ((a ^ result) & (b ^ result)) < 0;
+                break;
+            case ExpressionArena.SUBTRACT:
+                result = a - b;
+                overflow = ((a ^ b) & (a ^ result)) < 0;
+                break;
+            case ExpressionArena.MULTIPLY:
+                result = a * b;
+                overflow = Math.multiplyHigh(a, b) != result >> 63;
+                break;
+            default:
+                if (b == 0) return error(offset, "Division by zero");
+                overflow = a == Long.MIN_VALUE && b == -1;
+                result = op == ExpressionArena.DIVIDE ? a / b : a % b;
+                break;
+        }
+        if (overflow || (isInt && result != (int) result)) {
+            return error(offset, (isInt ? "Int" : "Long") + " overflow in '" + symbol + "'");
+        }
+        set(node, isInt ? DataType.INT : DataType.LONG, result);
+        return true;
+    }
+
+    private boolean negate(int node, int operand, long offset) {
+        int type = promote(types[operand], types[operand]);
+        long v = bits[operand];
+        if (type == DataType.INT.code() || type == DataType.LONG.code()) {
+            if (v == (type == DataType.INT.code() ? Integer.MIN_VALUE : Long.MIN_VALUE)) {
+                return error(offset, (type == DataType.INT.code() ? "Int" : "Long") + " overflow in '-'");
+            }
+            set(node, TYPES[type], -v);
+        } else {
+            set(node, TYPES[type], Double.doubleToRawLongBits(-Double.longBitsToDouble(v)));
+        }
+        doubles[node] = doubles[operand];
+        return true;
+    }
+
+    private boolean compare(int op, int type, int left, int right) {
+        int c;
+        if (type == DataType.INT.code() || type == DataType.LONG.code()) {
+            c = Long.compare(bits[left], bits[right]);
+        } else {
+            double a = type == DataType.FLOAT.code() ? (float) real(left) : real(left);
+            double b = type == DataType.FLOAT.code() ? (float) real(right) : real(right);
+            // NaN is neither smaller, larger nor equal, as in Java
+            if (a != a || b != b) return op == ExpressionArena.NOT_EQUAL;
+            c = Double.compare(a == 0 ? 0.0 : a, b == 0 ? 0.0 : b);
+        }
+        switch (op) {
+            case ExpressionArena.LESS: return c < 0;
+            case ExpressionArena.LESS_OR_EQUAL: return c <= 0;
+            case ExpressionArena.GREATER: return c > 0;
+            case ExpressionArena.GREATER_OR_EQUAL: return c >= 0;
+            case ExpressionArena.EQUAL: return c == 0;
+            default: return c != 0;
+        }
+    }
+
+    // whether the folded root suits the declared type, and its value in that type
+    private Verdict assign(DataType type, int root) {
+        int t = types[root];
+        long v = bits[root];
+        string = strings[root];
+        value = v;
+        switch (type) {
+            case BYTE:
+            case SHORT:
+            case INT:
+                long max = type == DataType.BYTE ? Byte.MAX_VALUE : type == DataType.SHORT ? Short.MAX_VALUE : Integer.MAX_VALUE;
+                boolean inRange = v >= -max - 1 && v <= max;
+                if (t == DataType.INT.code()) return inRange ? Verdict.VALID : Verdict.OUT_OF_RANGE;
+                if (t == DataType.LONG.code()) return inRange ? Verdict.INCOMPATIBLE : Verdict.OUT_OF_RANGE;
+                return Verdict.INCOMPATIBLE;
+            case LONG:
+                return t == DataType.INT.code() || t == DataType.LONG.code() ? Verdict.VALID : Verdict.INCOMPATIBLE;
+            case FLOAT:
+                if (t != DataType.FLOAT.code() && (t != DataType.DOUBLE.code() || doubles[root])) return Verdict.INCOMPATIBLE;
+                double d = Double.longBitsToDouble(v);
+                float f = (float) d;
+                if (Float.isInfinite(f) || f != f || (d != 0 && f == 0)) return Verdict.OUT_OF_RANGE;
+                value = Double.doubleToRawLongBits(f);
+                return Verdict.VALID;
+            case DOUBLE:
+                if (t != DataType.FLOAT.code() && t != DataType.DOUBLE.code()) return Verdict.INCOMPATIBLE;
+                double real = Double.longBitsToDouble(v);
+                return Double.isInfinite(real) || real != real ? Verdict.OUT_OF_RANGE : Verdict.VALID;
+            default:
+                return t == type.code() ? Verdict.VALID : Verdict.INCOMPATIBLE;
+        }
+    }
+
+    private void set(int node, DataType type, long v) {
+        types[node] = type.code();
+        bits[node] = v;
+    }
+
+    private double real(int node) {
+        int t = types[node];
+        return t == DataType.FLOAT.code() || t == DataType.DOUBLE.code() ? Double.longBitsToDouble(bits[node]) : bits[node];
+    }
+
+    private void appendString(StringBuilder out, int node) {
+        int t = types[node];
+        if (t == DataType.STRING.code()) {
+            out.append(strings[node]);
+        } else if (t == DataType.CHAR.code()) {
+            appendChar(out, (char) bits[node]);
+        } else if (t == DataType.BOOLEAN.code()) {
+            out.append(bits[node] != 0);
+        } else if (t == DataType.FLOAT.code()) {
+            out.append((float) Double.longBitsToDouble(bits[node]));
+        } else if (t == DataType.DOUBLE.code()) {
+            out.append(Double.longBitsToDouble(bits[node]));
+        } else {
+            out.append(bits[node]);
+        }
+    }
+
+    // strings are kept as written between the quotes, so a char goes in as its escape
+    private static StringBuilder appendChar(StringBuilder out, char c) {
+        switch (c) {
+            case '\b': return out.append("\\b");
+            case '\t': return out.append("\\t");
+            case '\n': return out.append("\\n");
+            case '\f': return out.append("\\f");
+            case '\r': return out.append("\\r");
+            case '"': return out.append("\\\"");
+            case '\'': return out.append("\\'");
+            case '\\': return out.append("\\\\");
+            default:
+                if (c >= ' ' && c != 0x7f) return out.append(c);
+                return out.append(String.format("\\u%04x", (int) c));
+        }
+    }
+
+    private static boolean isNumeric(int type) {
+        return type == DataType.INT.code() || type == DataType.LONG.code() || type == DataType.FLOAT.code()
+                || type == DataType.DOUBLE.code() || type == DataType.CHAR.code();
+    }
+
+    // binary numeric promotion; a char or an int alone is an int
+    private static int promote(int a, int b) {
+        if (a == DataType.DOUBLE.code() || b == DataType.DOUBLE.code()) return DataType.DOUBLE.code();
+        if (a == DataType.FLOAT.code() || b == DataType.FLOAT.code()) return DataType.FLOAT.code();
+        if (a == DataType.LONG.code() || b == DataType.LONG.code()) return DataType.LONG.code();
+        return DataType.INT.code();
+    }
+
+    private boolean typeError(long offset, String operator, int left, int right) {
+        String operands = TYPES[types[left]].getKeyword() + (right < 0 ? "" : " and " + TYPES[types[right]].getKeyword());
+        return error(offset, "Operator '" + operator + "' cannot be applied to " + operands);
+    }
+
+    private boolean error(long offset, String message) {
+        errorOffset = offset;
+        errorMessage = message;
+        return false;
+    }
+
+    private boolean silentError() {
+        errorMessage = null;
+        return false;
+    }
+
+    private static String operatorText(int op) {
+        switch (op) {
+            case ExpressionArena.ADD: return "+";
+            case ExpressionArena.SUBTRACT: return "-";
+            case ExpressionArena.MULTIPLY: return "*";
+            case ExpressionArena.DIVIDE: return "/";
+            case ExpressionArena.REMAINDER: return "%";
+            case ExpressionArena.LESS: return "<";
+            case ExpressionArena.LESS_OR_EQUAL: return "<=";
+            case ExpressionArena.GREATER: return ">";
+            case ExpressionArena.GREATER_OR_EQUAL: return ">=";
+            case ExpressionArena.EQUAL: return "==";
+            case ExpressionArena.NOT_EQUAL: return "!=";
+            case ExpressionArena.AND: return "&&";
+            default: return "||";
+        }
+    }
+
+    private static String digits(CharSequence text) {
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c != '_' && (c | 0x20) != 'l') out.append(c);
+        }
+        return out.toString();
+    }
+
+    // a lone quote is a literal of its own and stands for the empty text
+    private static String unquote(CharSequence literal) {
+        return literal.length() < 2 ? "" : literal.subSequence(1, literal.length() - 1).toString();
+    }
+}
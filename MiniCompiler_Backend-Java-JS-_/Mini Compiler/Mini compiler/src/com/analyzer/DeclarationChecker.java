@@ -0,0 +1,381 @@
+package com.analyzer;
+
+import com.analyzer.LiteralValidator.Verdict;
+import com.model.CompilationResult;
+import com.model.DataType;
+import com.model.Diagnostics;
+import com.model.Phase;
+import com.model.SymbolTable;
+import com.model.Token;
+import com.model.TokenBuffer;
+import com.model.TokenKind;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Checks each {@code <data_type> <identifier> [= <expression>] ;} declaration as soon as its last
+ * token arrives, so lexing, syntax and semantic analysis happen in a single pass over the
+ * token stream. Stops at the first error and ignores later tokens, unless a {@link Diagnostics}
+ * list is set: then every error is recorded and checking resumes after the next ';'.
+ *
+ * The syntax of an initializer is checked token by token, keeping only the paren depth; its
+ * tokens are queued, and the semantic check parses them with {@link ExpressionParser} and folds
+ * them with {@link ConstantFolder} against the values of the variables declared before it.
+ */
+public class DeclarationChecker implements StreamingLexer.TokenSink {
+    public interface DeclarationListener {
+        // called for every declaration that passed all checks, in source order
+        void declared(SymbolTable symbols, int symbol, long tokenCount);
+
+        // called for every error as it is found
+        default void failed(Phase phase, long offset, String message) {}
+    }
+
+    // everything needed to resume checking at a given point, e.g. the start of a line
+    public static class Checkpoint {
+        private final int state;
+        private final DataType declaredType;
+        private final String identifier;
+        private final long identifierStart;
+        private final int depth;
+        private final boolean hasValue;
+        private final long valueStart;
+        // tokens of the initializer so far, when the checkpoint is inside one
+        private final TokenQueue expression;
+        private final long tokenCount;
+        private final long declarationCount;
+        private final int symbolCount;
+        private final Phase failedPhase;
+        private final long errorOffset;
+        private final String message;
+        private final long diagnosticCount;
+
+        private Checkpoint(DeclarationChecker checker) {
+            state = checker.state;
+            declaredType = checker.declaredType;
+            identifier = checker.state == EXPECT_TYPE ? null : checker.identifier.toString();
+            identifierStart = checker.identifierStart;
+            depth = checker.depth;
+            hasValue = checker.hasValue;
+            valueStart = checker.valueStart;
+            expression = checker.checkSemantics && checker.inExpression()
+                    ? checker.expression.copy(checker.expressionStart) : null;
+            tokenCount = checker.tokenCount;
+            declarationCount = checker.declarationCount;
+            symbolCount = checker.symbols.size();
+            failedPhase = checker.failedPhase;
+            errorOffset = checker.errorOffset;
+            message = checker.message;
+            diagnosticCount = checker.diagnostics == null ? 0 : checker.diagnostics.getTotal();
+        }
+    }
+
+    private static final int EXPECT_TYPE = 0;
+    private static final int EXPECT_IDENTIFIER = 1;
+    private static final int EXPECT_ASSIGNMENT_OR_DELIMITER = 2;
+    // an operand: a value, a name, a prefix operator or '('
+    private static final int EXPECT_VALUE = 3;
+    // after an operand: a binary operator, ')' or the closing ';'
+    private static final int EXPECT_OPERATOR_OR_DELIMITER = 4;
+    // recovering from an error: skip to the next ';'
+    private static final int SKIP_TO_DELIMITER = 5;
+
+    private final boolean checkSemantics;
+    private final SymbolTable symbols = new SymbolTable();
+    private DeclarationListener listener;
+    private int state = EXPECT_TYPE;
+    private DataType declaredType;
+    private final StringBuilder identifier = new StringBuilder();
+    private long identifierStart;
+    // open parentheses in the initializer
+    private int depth;
+    private boolean hasValue;
+    private long valueStart;
+    // initializer tokens awaiting their semantic check; this declaration's start at expressionStart
+    private final TokenQueue expression = new TokenQueue(16);
+    private int expressionStart;
+    private final ExpressionArena arena = new ExpressionArena();
+    private final SymbolValues values = new SymbolValues();
+    private final ConstantFolder folder = new ConstantFolder(symbols, values);
+    private boolean unresolved;
+    private long tokenCount;
+    private long declarationCount;
+    private Phase failedPhase;
+    private long errorOffset = -1;
+    private String message;
+    private boolean stopped;
+    private Diagnostics diagnostics;
+
+    public DeclarationChecker() {
+        this(Phase.SEMANTIC);
+    }
+
+    // lastPhase SYNTAX skips the type and duplicate checks
+    public DeclarationChecker(Phase lastPhase) {
+        this.checkSemantics = lastPhase == Phase.SEMANTIC;
+    }
+
+    public static CompilationResult check(ArrayList<Token> tokens, Phase lastPhase) {
+        DeclarationChecker checker = new DeclarationChecker(lastPhase);
+        for (int i = 0; i < tokens.size() && !checker.isFailed(); i++) {
+            checker.accept(tokens.get(i));
+        }
+        return checker.finish(-1);
+    }
+
+    public static CompilationResult check(TokenBuffer tokens, Phase lastPhase) {
+        DeclarationChecker checker = new DeclarationChecker(lastPhase);
+        SourceWindow window = new SourceWindow(tokens.getSource());
+        for (int i = 0; i < tokens.size() && !checker.isFailed(); i++) {
+            int start = tokens.start(i);
+            checker.token(TokenKind.fromCode(tokens.kind(i)), window.set(start, start + tokens.length(i)), start);
+        }
+        return checker.finish(tokens.getSource().length());
+    }
+
+    public void setListener(DeclarationListener listener) {
+        this.listener = listener;
+    }
+
+    // true once checking has stopped at an error; never when collecting diagnostics
+    public boolean isFailed() { return stopped; }
+    public long getTokenCount() { return tokenCount; }
+    public long getDeclarationCount() { return declarationCount; }
+
+    // true once an initializer named a variable that is not declared before it
+    public boolean hasUnresolvedReference() { return unresolved; }
+
+    /**
+     * Records every error in diagnostics and recovers instead of stopping. The result then
+     * reports the earliest phase with an error, like running the phases one after another.
+     */
+    public void setDiagnostics(Diagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    public Checkpoint checkpoint() {
+        return new Checkpoint(this);
+    }
+
+    public void restore(Checkpoint checkpoint) {
+        state = checkpoint.state;
+        declaredType = checkpoint.declaredType;
+        identifier.setLength(0);
+        if (checkpoint.identifier != null) identifier.append(checkpoint.identifier);
+        identifierStart = checkpoint.identifierStart;
+        depth = checkpoint.depth;
+        hasValue = checkpoint.hasValue;
+        valueStart = checkpoint.valueStart;
+        expression.clear();
+        arena.clear();
+        expressionStart = 0;
+        if (checkpoint.expression != null) expression.addAll(checkpoint.expression);
+        tokenCount = checkpoint.tokenCount;
+        declarationCount = checkpoint.declarationCount;
+        symbols.truncate(checkpoint.symbolCount);
+        failedPhase = checkpoint.failedPhase;
+        errorOffset = checkpoint.errorOffset;
+        message = checkpoint.message;
+        stopped = false;
+        if (diagnostics != null) diagnostics.truncate(checkpoint.diagnosticCount);
+    }
+
+    // identifier of the declaration being checked, or of the one that failed
+    public CharSequence getIdentifier() { return identifier; }
+    public long getIdentifierStart() { return identifierStart; }
+
+    public SymbolTable getSymbols() { return symbols; }
+
+    // folded initializers of the symbols, set as each declaration passes its semantic check
+    SymbolValues getValues() { return values; }
+
+    public void accept(Token token) {
+        TokenKind kind = token.getKind();
+        token(kind == null ? TokenKind.UNKNOWN : kind, token.getLexeme(), -1);
+    }
+
+    @Override
+    public void token(TokenKind kind, CharSequence text, long start) {
+        if (stopped) return;
+        tokenCount++;
+        if (kind == TokenKind.UNKNOWN) {
+            if (checkSemantics && inExpression()) expression.truncate(expressionStart);
+            fail(Phase.LEXICAL, start, "Unknown token '" + text + "'");
+            // the declaration is broken either way; no syntax error on top
+            state = SKIP_TO_DELIMITER;
+            return;
+        }
+        switch (state) {
+            case SKIP_TO_DELIMITER:
+                if (kind == TokenKind.DELIMITER) state = EXPECT_TYPE;
+                break;
+            case EXPECT_TYPE:
+                if (kind != TokenKind.DATA_TYPE) {
+                    syntaxError(kind, start, "Expected a data type but found '" + text + "'");
+                    return;
+                }
+                declaredType = checkSemantics ? LexemeClassifier.dataType(text) : null;
+                state = EXPECT_IDENTIFIER;
+                break;
+            case EXPECT_IDENTIFIER:
+                if (kind != TokenKind.IDENTIFIER) {
+                    syntaxError(kind, start, "Expected an identifier but found '" + text + "'");
+                    return;
+                }
+                identifier.setLength(0);
+                if (checkSemantics) identifier.append(text);
+                identifierStart = start;
+                hasValue = false;
+                state = EXPECT_ASSIGNMENT_OR_DELIMITER;
+                break;
+            case EXPECT_ASSIGNMENT_OR_DELIMITER:
+                if (kind == TokenKind.ASSIGNMENT_OPERATOR) {
+                    hasValue = true;
+                    valueStart = -1;
+                    depth = 0;
+                    expressionStart = expression.size();
+                    state = EXPECT_VALUE;
+                } else if (kind == TokenKind.DELIMITER) {
+                    endDeclaration();
+                } else {
+                    syntaxError(kind, start, "Expected '=' or ';' but found '" + text + "'");
+                }
+                break;
+            case EXPECT_VALUE:
+                if (kind == TokenKind.VALUE || kind == TokenKind.IDENTIFIER) {
+                    state = EXPECT_OPERATOR_OR_DELIMITER;
+                } else if (kind == TokenKind.OPERATOR && text.length() == 1 && text.charAt(0) == '(') {
+                    if (depth == ExpressionParser.MAX_NESTING) {
+                        syntaxError(kind, start, "Expression is nested too deeply");
+                        return;
+                    }
+                    depth++;
+                } else if (kind != TokenKind.OPERATOR || !ExpressionParser.isPrefix(text)) {
+                    syntaxError(kind, start, "Expected a value but found '" + text + "'");
+                    return;
+                }
+                if (valueStart < 0) valueStart = start;
+                if (checkSemantics) expression.token(kind, text, start);
+                break;
+            default:
+                if (kind == TokenKind.DELIMITER && depth == 0) {
+                    endDeclaration();
+                    return;
+                }
+                if (kind == TokenKind.OPERATOR && text.length() == 1 && text.charAt(0) == ')' && depth > 0) {
+                    depth--;
+                } else if (kind == TokenKind.OPERATOR && ExpressionParser.isBinary(text)) {
+                    state = EXPECT_VALUE;
+                } else {
+                    syntaxError(kind, start, "Expected '" + (depth == 0 ? ';' : ')') + "' but found '" + text + "'");
+                    return;
+                }
+                if (checkSemantics) expression.token(kind, text, start);
+                break;
+        }
+    }
+
+    private boolean inExpression() {
+        return state == EXPECT_VALUE || state == EXPECT_OPERATOR_OR_DELIMITER;
+    }
+
+    private void endDeclaration() {
+        state = EXPECT_TYPE;
+        declarationCount++;
+        if (!checkSemantics) return;
+        int first = arena.size();
+        int root = hasValue ? ExpressionParser.parse(expression, expressionStart, expression.size(), arena) : -1;
+        checkDeclaration(declaredType, identifier, identifierStart, first, root, valueStart, tokenCount);
+        expression.clear();
+        arena.clear();
+    }
+
+    // panic mode: a ';' ends the broken declaration, anything else is skipped up to the next one
+    private void syntaxError(TokenKind kind, long start, String text) {
+        if (checkSemantics && inExpression()) expression.truncate(expressionStart);
+        fail(Phase.SYNTAX, start, text);
+        state = kind == TokenKind.DELIMITER ? EXPECT_TYPE : SKIP_TO_DELIMITER;
+    }
+
+    // root is -1 when the declaration has no initializer
+    private boolean checkDeclaration(DataType type, CharSequence name, long nameStart,
+                                     int first, int root, long valueOffset, long tokens) {
+        // folded before the name is declared, so an initializer cannot use its own variable
+        Verdict value = root < 0 ? Verdict.VALID : folder.fold(type, expression, arena, first, root);
+        if (value == null && folder.isUnresolved()) unresolved = true;
+        if (diagnostics != null) return checkAll(type, name, nameStart, root >= 0, value, valueOffset, tokens);
+        // a duplicate is reported before a type mismatch in the same declaration
+        if (value != Verdict.VALID) {
+            if (symbols.lookup(name) >= 0) {
+                fail(Phase.SEMANTIC, nameStart, "Duplicate variable '" + name + "'");
+            } else {
+                valueError(type, name, value, valueOffset);
+            }
+            return false;
+        }
+        if (symbols.containsOrInsert(name, type.code(), nameStart) >= 0) {
+            fail(Phase.SEMANTIC, nameStart, "Duplicate variable '" + name + "'");
+            return false;
+        }
+        setValue(root >= 0 ? SymbolValues.KNOWN : SymbolValues.NONE);
+        if (listener != null) listener.declared(symbols, symbols.size() - 1, tokens);
+        return true;
+    }
+
+    // reports both problems of a declaration; a mistyped variable still counts as declared
+    private boolean checkAll(DataType type, CharSequence name, long nameStart, boolean initialized,
+                             Verdict value, long valueOffset, long tokens) {
+        boolean inserted = symbols.containsOrInsert(name, type.code(), nameStart) < 0;
+        if (!inserted) fail(Phase.SEMANTIC, nameStart, "Duplicate variable '" + name + "'");
+        boolean compatible = value == Verdict.VALID;
+        if (!compatible) valueError(type, name, value, valueOffset);
+        if (inserted) setValue(!initialized ? SymbolValues.NONE : compatible ? SymbolValues.KNOWN : SymbolValues.FAILED);
+        if (inserted && compatible && listener != null) listener.declared(symbols, symbols.size() - 1, tokens);
+        return inserted && compatible;
+    }
+
+    private void setValue(byte state) {
+        values.set(symbols.size() - 1, state, state == SymbolValues.KNOWN ? folder.getValue() : 0,
+                state == SymbolValues.KNOWN ? folder.getString() : null);
+    }
+
+    // value is null for an error inside the expression, which has no message when it only
+    // repeats the failure of a variable it uses
+    private void valueError(DataType type, CharSequence name, Verdict value, long valueOffset) {
+        if (value != null) {
+            fail(Phase.SEMANTIC, valueOffset, valueMessage(type, name, value));
+        } else if (folder.getErrorMessage() != null) {
+            fail(Phase.SEMANTIC, folder.getErrorOffset(), folder.getErrorMessage());
+        }
+    }
+
+    private static String valueMessage(DataType type, CharSequence name, Verdict value) {
+        String problem = value == Verdict.OUT_OF_RANGE ? "out of range for" : "not compatible with";
+        return "Value is " + problem + " type " + type.getKeyword() + " of '" + name + "'";
+    }
+
+    public CompilationResult finish(long endOffset) {
+        if (!stopped && state != EXPECT_TYPE && state != SKIP_TO_DELIMITER) {
+            fail(Phase.SYNTAX, endOffset, "Unexpected end of input");
+        }
+        return result();
+    }
+
+    public CompilationResult result() {
+        return new CompilationResult(failedPhase, errorOffset, message, tokenCount, declarationCount, diagnostics);
+    }
+
+    private void fail(Phase phase, long offset, String text) {
+        if (listener != null) listener.failed(phase, offset, text);
+        if (diagnostics != null) {
+            diagnostics.add(phase, offset, text);
+            // the first error of the earliest phase decides the verdict
+            if (failedPhase != null && phase.compareTo(failedPhase) >= 0) return;
+        } else {
+            stopped = true;
+        }
+        failedPhase = phase;
+        errorOffset = offset;
+        message = text;
+    }
+}
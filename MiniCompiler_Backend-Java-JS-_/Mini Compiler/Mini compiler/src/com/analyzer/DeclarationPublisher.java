@@ -0,0 +1,362 @@
+package com.analyzer;
+
+import com.model.AnalysisEvent;
+import com.model.CompilationResult;
+import com.model.DataType;
+import com.model.Diagnostics;
+import com.model.Phase;
+import com.model.SymbolTable;
+import com.model.TokenKind;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.util.ArrayDeque;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Analyzes a byte stream, decoded with the platform charset, as a {@link Flow.Publisher} of
+ * {@link AnalysisEvent}s: tokens, accepted declarations and errors as they are found, then the
+ * result. Every error is reported and checking resumes after the next ';', as in a diagnostics
+ * run.
+ *
+ * Input is read only while the subscriber has asked for more events than are waiting, and at
+ * most {@link #SLICE_SIZE} bytes at a time, so a slow subscriber holds back the reader or the
+ * upstream publisher and memory stays bounded whatever the input size. All work, including
+ * blocking channel reads, runs on the given executor. A publisher serves one subscriber.
+ */
+public class DeclarationPublisher implements Flow.Publisher<AnalysisEvent> {
+    // bytes lexed per step, which bounds the events waiting at any time
+    public static final int SLICE_SIZE = 8 * 1024;
+
+    private final Flow.Publisher<ByteBuffer> upstream;
+    private final ReadableByteChannel channel;
+    private final Executor executor;
+    private final Set<AnalysisEvent.Type> types;
+    private final AtomicBoolean subscribed = new AtomicBoolean();
+
+    /**
+     * Reads the buffers an upstream publisher hands over, one request at a time; a buffer
+     * must not be changed after it was passed to onNext.
+     */
+    public DeclarationPublisher(Flow.Publisher<ByteBuffer> input, Executor executor, Set<AnalysisEvent.Type> types) {
+        this(Objects.requireNonNull(input), null, executor, types);
+    }
+
+    // reads the channel up to its end, but leaves it open
+    public DeclarationPublisher(ReadableByteChannel input, Executor executor, Set<AnalysisEvent.Type> types) {
+        this(null, Objects.requireNonNull(input), executor, types);
+    }
+
+    public DeclarationPublisher(ReadableByteChannel input, Executor executor) {
+        this(input, executor, EnumSet.allOf(AnalysisEvent.Type.class));
+    }
+
+    private DeclarationPublisher(Flow.Publisher<ByteBuffer> upstream, ReadableByteChannel channel,
+                                 Executor executor, Set<AnalysisEvent.Type> types) {
+        this.upstream = upstream;
+        this.channel = channel;
+        this.executor = Objects.requireNonNull(executor);
+        this.types = EnumSet.copyOf(types);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super AnalysisEvent> subscriber) {
+        Objects.requireNonNull(subscriber);
+        if (!subscribed.compareAndSet(false, true)) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {}
+
+                @Override
+                public void cancel() {}
+            });
+            subscriber.onError(new IllegalStateException("A declaration publisher serves only one subscriber"));
+            return;
+        }
+        Run run = new Run(subscriber);
+        subscriber.onSubscribe(run);
+        if (upstream != null) upstream.subscribe(run.new Input());
+    }
+
+    /**
+     * One analysis. Signals come from a single drain loop on the executor, which is the only
+     * code touching the lexer, the checker and the queue of waiting events.
+     */
+    private final class Run implements Flow.Subscription, Runnable, StreamingLexer.TokenSink,
+            DeclarationChecker.DeclarationListener {
+        private final Flow.Subscriber<? super AnalysisEvent> subscriber;
+        private final AtomicInteger work = new AtomicInteger();
+        private final AtomicLong demand = new AtomicLong();
+        private volatile boolean cancelled;
+        private volatile boolean badRequest;
+
+        // handed over by the upstream publisher
+        private final Queue<ByteBuffer> arrived = new ConcurrentLinkedQueue<>();
+        private volatile Flow.Subscription upstreamSubscription;
+        private volatile boolean upstreamDone;
+        private volatile Throwable upstreamError;
+
+        // drain loop only
+        private final Queue<AnalysisEvent> waiting = new ArrayDeque<>();
+        private final DeclarationChecker checker = new DeclarationChecker();
+        private final StreamingLexer lexer = new StreamingLexer(this);
+        private final CharsetDecoder decoder = StreamingLexer.newDecoder();
+        private final CharBuffer chars = CharBuffer.allocate(SLICE_SIZE);
+        // the first bytes of a char whose last bytes are still to come
+        private final ByteBuffer carry = ByteBuffer.allocate(16);
+        private ByteBuffer current;
+        private boolean inputRequested;
+        private boolean inputDone;
+        private boolean finished;
+        private Throwable failure;
+
+        Run(Flow.Subscriber<? super AnalysisEvent> subscriber) {
+            this.subscriber = subscriber;
+            // counts the errors but keeps none, as each is published
+            checker.setDiagnostics(new Diagnostics(0));
+            checker.setListener(this);
+            if (channel != null) current = ByteBuffer.allocate(SLICE_SIZE).flip();
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                badRequest = true;
+            } else {
+                demand.getAndAccumulate(n, (d, add) -> d + add < 0 ? Long.MAX_VALUE : d + add);
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Flow.Subscription input = upstreamSubscription;
+            if (input != null) input.cancel();
+        }
+
+        private void schedule() {
+            if (work.getAndIncrement() != 0) return;
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                cancel();
+                subscriber.onError(e);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = work.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            while (!finished) {
+                if (cancelled) {
+                    finished = true;
+                    waiting.clear();
+                    return;
+                }
+                if (badRequest) {
+                    cancel();
+                    finished = true;
+                    subscriber.onError(new IllegalArgumentException("Requested a non-positive number of events"));
+                    return;
+                }
+                long requested = demand.get();
+                long emitted = 0;
+                while (emitted < requested && !waiting.isEmpty() && !cancelled) {
+                    subscriber.onNext(waiting.poll());
+                    emitted++;
+                }
+                if (emitted > 0 && requested != Long.MAX_VALUE) demand.addAndGet(-emitted);
+                if (cancelled) continue;
+                // the rest waits for request(), which runs this loop again
+                if (!waiting.isEmpty()) return;
+                if (inputDone) {
+                    finished = true;
+                    if (failure != null) {
+                        subscriber.onError(failure);
+                    } else {
+                        subscriber.onComplete();
+                    }
+                    return;
+                }
+                // read nothing until asked for something
+                if (demand.get() == 0 || !step()) return;
+            }
+        }
+
+        // lexes the next slice of input; false while waiting for the upstream publisher
+        private boolean step() {
+            if (current == null || !current.hasRemaining()) {
+                try {
+                    if (!nextInput()) return false;
+                } catch (IOException | RuntimeException e) {
+                    fail(e);
+                    return true;
+                }
+                if (inputDone) return true;
+            }
+            int end = current.position() + Math.min(current.remaining(), SLICE_SIZE);
+            ByteBuffer slice = current.slice(current.position(), end - current.position());
+            current.position(end);
+            decode(slice, false);
+            return true;
+        }
+
+        // sets current to the next bytes, or finishes the analysis at the end of the input
+        private boolean nextInput() throws IOException {
+            if (channel != null) {
+                current.clear();
+                int n = channel.read(current);
+                current.flip();
+                if (n == -1) finishInput();
+                return true;
+            }
+            // read before polling, so that no buffer can arrive after it
+            boolean done = upstreamDone;
+            ByteBuffer buffer = arrived.poll();
+            if (buffer != null) {
+                inputRequested = false;
+                current = buffer;
+                return true;
+            }
+            if (done) {
+                if (upstreamError != null) {
+                    fail(upstreamError);
+                } else {
+                    finishInput();
+                }
+                return true;
+            }
+            Flow.Subscription input = upstreamSubscription;
+            if (!inputRequested && input != null) {
+                inputRequested = true;
+                input.request(1);
+            }
+            return false;
+        }
+
+        private void finishInput() {
+            decode(ByteBuffer.allocate(0), true);
+            lexer.finish();
+            CompilationResult result = checker.finish(lexer.getPosition());
+            if (types.contains(AnalysisEvent.Type.RESULT)) waiting.add(AnalysisEvent.result(result));
+            inputDone = true;
+        }
+
+        private void fail(Throwable e) {
+            failure = e;
+            inputDone = true;
+            Flow.Subscription input = upstreamSubscription;
+            if (input != null) input.cancel();
+        }
+
+        private void decode(ByteBuffer in, boolean endOfInput) {
+            // complete a char split between two buffers a byte at a time
+            while (carry.position() > 0 && in.hasRemaining()) {
+                carry.put(in.get()).flip();
+                decoder.decode(carry, chars, false);
+                carry.compact();
+            }
+            if (endOfInput && carry.position() > 0) {
+                carry.flip();
+                decoder.decode(carry, chars, true);
+                carry.clear();
+            }
+            while (true) {
+                CoderResult result = decoder.decode(in, chars, endOfInput);
+                feedChars();
+                if (result.isUnderflow()) break;
+            }
+            if (endOfInput) {
+                decoder.flush(chars);
+                feedChars();
+            } else {
+                carry.put(in);
+            }
+        }
+
+        private void feedChars() {
+            chars.flip();
+            lexer.feed(chars.array(), chars.position(), chars.remaining());
+            chars.clear();
+        }
+
+        @Override
+        public void token(TokenKind kind, CharSequence text, long start) {
+            if (types.contains(AnalysisEvent.Type.TOKEN)) {
+                waiting.add(AnalysisEvent.token(kind, text.toString(), start));
+            }
+            checker.token(kind, text, start);
+        }
+
+        @Override
+        public void declared(SymbolTable symbols, int symbol, long tokenCount) {
+            if (types.contains(AnalysisEvent.Type.DECLARATION)) {
+                DataType type = DataType.fromCode(symbols.typeCode(symbol));
+                SymbolValues values = checker.getValues();
+                String value = values.state(symbol) != SymbolValues.KNOWN ? null
+                        : ConstantFolder.literal(type, values.bits(symbol), values.string(symbol));
+                waiting.add(AnalysisEvent.declaration(type, symbols.nameString(symbol), symbols.position(symbol), value));
+            }
+        }
+
+        @Override
+        public void failed(Phase phase, long offset, String message) {
+            if (types.contains(AnalysisEvent.Type.DIAGNOSTIC)) {
+                waiting.add(AnalysisEvent.diagnostic(phase, offset, message));
+            }
+        }
+
+        /** Receives the upstream buffers; every signal only queues it and wakes the drain loop. */
+        private final class Input implements Flow.Subscriber<ByteBuffer> {
+            @Override
+            public void onSubscribe(Flow.Subscription subscription) {
+                if (upstreamSubscription != null || cancelled) {
+                    subscription.cancel();
+                    return;
+                }
+                upstreamSubscription = subscription;
+                schedule();
+            }
+
+            @Override
+            public void onNext(ByteBuffer buffer) {
+                arrived.add(buffer);
+                schedule();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                upstreamError = error;
+                upstreamDone = true;
+                schedule();
+            }
+
+            @Override
+            public void onComplete() {
+                upstreamDone = true;
+                schedule();
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.analyzer;
+
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays storage for the nodes of initializer expressions: an operation code, the
+ * token it came from and up to two children per node, all ints. Nodes are added after their
+ * children, so a tree occupies a run of indexes that ends with its root, and folding it is a
+ * single loop over that run. Cleared and reused between declarations.
+ */
+final class ExpressionArena {
+    static final int LITERAL = 0;
+    // a decimal literal right after a unary '-', so that -2147483648 is an int
+    static final int NEGATIVE_LITERAL = 1;
+    static final int VARIABLE = 2;
+    static final int NEGATE = 3;
+    static final int PLUS = 4;
+    static final int NOT = 5;
+    static final int ADD = 6;
+    static final int SUBTRACT = 7;
+    static final int MULTIPLY = 8;
+    static final int DIVIDE = 9;
+    static final int REMAINDER = 10;
+    static final int LESS = 11;
+    static final int LESS_OR_EQUAL = 12;
+    static final int GREATER = 13;
+    static final int GREATER_OR_EQUAL = 14;
+    static final int EQUAL = 15;
+    static final int NOT_EQUAL = 16;
+    static final int AND = 17;
+    static final int OR = 18;
+
+    private int[] ops = new int[64];
+    private int[] tokens = new int[64];
+    private int[] lefts = new int[64];
+    private int[] rights = new int[64];
+    private int size;
+
+    // returns the new node's index
+    int add(int op, int token, int left, int right) {
+        if (size == ops.length) {
+            int capacity = size * 2;
+            ops = Arrays.copyOf(ops, capacity);
+            tokens = Arrays.copyOf(tokens, capacity);
+            lefts = Arrays.copyOf(lefts, capacity);
+            rights = Arrays.copyOf(rights, capacity);
+        }
+        ops[size] = op;
+        tokens[size] = token;
+        lefts[size] = left;
+        rights[size] = right;
+        return size++;
+    }
+
+    int size() { return size; }
+    int op(int node) { return ops[node]; }
+    // index of the literal, name or operator token in the expression's token queue
+    int token(int node) { return tokens[node]; }
+    // -1 when the node has no such child
+    int left(int node) { return lefts[node]; }
+    int right(int node) { return rights[node]; }
+
+    void clear() {
+        size = 0;
+    }
+}
@@ -0,0 +1,127 @@
+package com.analyzer;
+
+import com.model.TokenKind;
+
+/**
+ * Pratt parser for initializer expressions, over tokens the {@link DeclarationChecker} has
+ * already found to be well-formed as they arrived; it only builds the tree. From loosest to
+ * tightest, the binary operators are ||, &&, == !=, < <= > >=, + - and * / %, all left
+ * associative, and the prefix operators - + ! bind tighter than any of them.
+ */
+final class ExpressionParser {
+    // parentheses nested deeper than this are a syntax error, which bounds the recursion
+    static final int MAX_NESTING = 256;
+
+    private final TokenQueue tokens;
+    private final ExpressionArena arena;
+    private int next;
+
+    private ExpressionParser(TokenQueue tokens, int from, ExpressionArena arena) {
+        this.tokens = tokens;
+        this.next = from;
+        this.arena = arena;
+    }
+
+    // adds the nodes of the expression [from, to) to the arena and returns its root
+    static int parse(TokenQueue tokens, int from, int to, ExpressionArena arena) {
+        ExpressionParser parser = new ExpressionParser(tokens, from, arena);
+        int root = parser.expression(0, to);
+        if (parser.next != to) throw new IllegalStateException("Unparsed tokens in an initializer");
+        return root;
+    }
+
+    // true for the operators that may start an operand
+    static boolean isPrefix(CharSequence operator) {
+        return operator.length() == 1 && (operator.charAt(0) == '-' || operator.charAt(0) == '+'
+                || operator.charAt(0) == '!');
+    }
+
+    // true for the operators that join two operands
+    static boolean isBinary(CharSequence operator) {
+        return binaryOp(operator) >= 0;
+    }
+
+    private int expression(int minPower, int end) {
+        int left = operand(end);
+        while (next < end) {
+            int op = tokens.kind(next) == TokenKind.OPERATOR ? binaryOp(tokens.text(next)) : -1;
+            if (op < 0 || power(op) <= minPower) break;
+            int operator = next++;
+            int right = expression(power(op), end);
+            left = arena.add(op, operator, left, right);
+        }
+        return left;
+    }
+
+    // a literal, a name or a parenthesized expression, after any number of prefix operators
+    private int operand(int end) {
+        int prefixStart = next;
+        while (tokens.kind(next) == TokenKind.OPERATOR && isPrefix(tokens.text(next))) next++;
+        int prefixEnd = next;
+        int node;
+        if (tokens.kind(next) == TokenKind.OPERATOR) {
+            // the checker let only '(' through here
+            next++;
+            node = expression(0, end);
+            next++;
+        } else if (tokens.kind(next) == TokenKind.IDENTIFIER) {
+            node = arena.add(ExpressionArena.VARIABLE, next++, -1, -1);
+        } else if (prefixEnd > prefixStart && tokens.firstChar(prefixEnd - 1) == '-' && isDigit(tokens.firstChar(next))) {
+            node = arena.add(ExpressionArena.NEGATIVE_LITERAL, next++, -1, -1);
+            prefixEnd--;
+        } else {
+            node = arena.add(ExpressionArena.LITERAL, next++, -1, -1);
+        }
+        // innermost prefix first, without recursion however long the run
+        for (int i = prefixEnd - 1; i >= prefixStart; i--) {
+            char c = tokens.firstChar(i);
+            int op = c == '-' ? ExpressionArena.NEGATE : c == '+' ? ExpressionArena.PLUS : ExpressionArena.NOT;
+            node = arena.add(op, i, node, -1);
+        }
+        return node;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int binaryOp(CharSequence operator) {
+        char c = operator.charAt(0);
+        if (operator.length() == 2) {
+            switch (c) {
+                case '=': return ExpressionArena.EQUAL;
+                case '!': return ExpressionArena.NOT_EQUAL;
+                case '<': return ExpressionArena.LESS_OR_EQUAL;
+                case '>': return ExpressionArena.GREATER_OR_EQUAL;
+                case '&': return ExpressionArena.AND;
+                default: return ExpressionArena.OR;
+            }
+        }
+        switch (c) {
+            case '+': return ExpressionArena.ADD;
+            case '-': return ExpressionArena.SUBTRACT;
+            case '*': return ExpressionArena.MULTIPLY;
+            case '/': return ExpressionArena.DIVIDE;
+            case '%': return ExpressionArena.REMAINDER;
+            case '<': return ExpressionArena.LESS;
+            case '>': return ExpressionArena.GREATER;
+            default: return -1;
+        }
+    }
+
+    private static int power(int op) {
+        switch (op) {
+            case ExpressionArena.OR: return 1;
+            case ExpressionArena.AND: return 2;
+            case ExpressionArena.EQUAL:
+            case ExpressionArena.NOT_EQUAL: return 3;
+            case ExpressionArena.LESS:
+            case ExpressionArena.LESS_OR_EQUAL:
+            case ExpressionArena.GREATER:
+            case ExpressionArena.GREATER_OR_EQUAL: return 4;
+            case ExpressionArena.ADD:
+            case ExpressionArena.SUBTRACT: return 5;
+            default: return 6;
+        }
+    }
+}
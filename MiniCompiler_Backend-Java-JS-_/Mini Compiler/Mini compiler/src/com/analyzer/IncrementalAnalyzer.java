@@ -0,0 +1,205 @@
+package com.analyzer;
+
+import com.model.CompilationResult;
+import com.model.Diagnostics;
+import com.model.Phase;
+import com.model.PhaseMetrics;
+import com.model.Token;
+import com.model.TokenBuffer;
+import com.model.TokenKind;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Keeps the tokens of every line and the checker state at every line start, so an edit only
+ * re-lexes the lines it touched and re-checks from the first touched line onwards. The lexer
+ * starts afresh on every line, which is what makes per-line token caching exact.
+ * Not thread-safe: edits and queries must all come from one thread.
+ */
+public class IncrementalAnalyzer {
+    private static final TokenBuffer NO_TOKENS = new TokenBuffer("", 1);
+
+    private static class Line {
+        private final TokenBuffer tokens;
+        private final int length;
+        private final int unknownCount;
+
+        Line(TokenBuffer tokens, int length, int unknownCount) {
+            this.tokens = tokens;
+            this.length = length;
+            this.unknownCount = unknownCount;
+        }
+    }
+
+    // replays one DeclarationChecker over the cached lines, resuming from saved line-start states;
+    // with diagnostics it goes on past errors, and the checkpoints also restore the error list
+    private class Replay {
+        private final Phase phase;
+        private final DeclarationChecker checker;
+        private final Diagnostics diagnostics;
+        private final ArrayList<DeclarationChecker.Checkpoint> checkpoints = new ArrayList<>();
+        private final ArrayList<Long> lineStarts = new ArrayList<>();
+        private final DeclarationChecker.Checkpoint initial;
+        private int failedLine = -1;
+        private CompilationResult result;
+
+        Replay(Phase lastPhase, Diagnostics diagnostics) {
+            phase = lastPhase;
+            this.diagnostics = diagnostics;
+            checker = new DeclarationChecker(lastPhase);
+            checker.setDiagnostics(diagnostics);
+            initial = checker.checkpoint();
+        }
+
+        void invalidateFrom(int line) {
+            if (result != null && failedLine >= 0 && failedLine < line) return;
+            result = null;
+            failedLine = -1;
+            // the state at the start of the edited line still holds
+            int keep = Math.min(checkpoints.size(), line + 1);
+            checkpoints.subList(keep, checkpoints.size()).clear();
+            lineStarts.subList(keep, lineStarts.size()).clear();
+        }
+
+        CompilationResult result() {
+            if (result != null) return result;
+            PhaseClock clock = new PhaseClock();
+            int from = checkpoints.size() - 1;
+            long start;
+            if (from < 0) {
+                from = 0;
+                start = 0;
+                checker.restore(initial);
+            } else {
+                start = lineStarts.get(from);
+                checker.restore(checkpoints.get(from));
+                checkpoints.remove(from);
+                lineStarts.remove(from);
+            }
+            long tokensBefore = checker.getTokenCount();
+            long declarationsBefore = checker.getDeclarationCount();
+            long startOffset = start;
+            SourceWindow window = null;
+            for (int i = from; i < lines.size(); i++) {
+                // cancellable between lines; the saved checkpoints stay valid
+                if (Thread.interrupted()) throw new CancellationException();
+                checkpoints.add(checker.checkpoint());
+                lineStarts.add(start);
+                Line line = lines.get(i);
+                TokenBuffer tokens = line.tokens;
+                if (tokens.size() > 0) window = new SourceWindow(tokens.getSource());
+                for (int t = 0; t < tokens.size(); t++) {
+                    int s = tokens.start(t);
+                    checker.token(TokenKind.fromCode(tokens.kind(t)), window.set(s, s + tokens.length(t)), start + s);
+                }
+                if (checker.isFailed()) {
+                    failedLine = i;
+                    result = checker.result();
+                    break;
+                }
+                start += line.length + 1;
+            }
+            if (result == null) result = checker.finish(start - 1);
+            if (diagnostics != null && !diagnostics.isEmpty()) result = withPositions(result);
+            clock.lap(metrics, phase, checker.getTokenCount() - tokensBefore,
+                    checker.getDeclarationCount() - declarationsBefore, Math.max(0, start - startOffset));
+            return result;
+        }
+
+        // sorting would break the checkpoints' truncation, so the result gets a sorted copy
+        private CompilationResult withPositions(CompilationResult result) {
+            Diagnostics copy = diagnostics.copy();
+            int[] lengths = new int[lines.size()];
+            for (int i = 0; i < lengths.length; i++) {
+                lengths[i] = lines.get(i).length;
+            }
+            copy.resolvePositions(lengths, lengths.length);
+            return new CompilationResult(result.getFailedPhase(), result.getErrorOffset(), result.getMessage(),
+                    result.getTokenCount(), result.getDeclarationCount(), copy);
+        }
+    }
+
+    private final ArrayList<Line> lines = new ArrayList<>();
+    private final Replay syntax = new Replay(Phase.SYNTAX, null);
+    private final Replay semantic = new Replay(Phase.SEMANTIC, new Diagnostics());
+    private long tokenCount;
+    private long unknownCount;
+    private PhaseMetrics metrics = new PhaseMetrics();
+
+    public IncrementalAnalyzer() {
+        lines.add(new Line(NO_TOKENS, 0, 0));
+    }
+
+    /** Replaces lines [first, first + removed) with the given lines, which must not contain '\n'. */
+    public void replaceLines(int first, int removed, List<? extends CharSequence> inserted) {
+        PhaseClock clock = new PhaseClock();
+        long lexed = 0;
+        long chars = 0;
+        for (int i = first; i < first + removed; i++) {
+            Line old = lines.get(i);
+            tokenCount -= old.tokens.size();
+            unknownCount -= old.unknownCount;
+        }
+        ArrayList<Line> fresh = new ArrayList<>(inserted.size());
+        for (CharSequence text : inserted) {
+            chars += text.length();
+            Line line = lex(text);
+            lexed += line.tokens.size();
+            tokenCount += line.tokens.size();
+            unknownCount += line.unknownCount;
+            fresh.add(line);
+        }
+        List<Line> range = lines.subList(first, first + removed);
+        range.clear();
+        range.addAll(fresh);
+        syntax.invalidateFrom(first);
+        semantic.invalidateFrom(first);
+        clock.lap(metrics, Phase.LEXICAL, lexed, 0, chars);
+    }
+
+    // the work done since the last call: lines re-lexed by edits and checks replayed
+    public PhaseMetrics takeMetrics() {
+        PhaseMetrics taken = metrics;
+        metrics = new PhaseMetrics();
+        return taken;
+    }
+
+    public int getLineCount() { return lines.size(); }
+    public long getTokenCount() { return tokenCount; }
+
+    public boolean isValidLexically() {
+        return unknownCount == 0;
+    }
+
+    public boolean isValidSyntax() {
+        return syntax.result().isSuccessful();
+    }
+
+    // verdict of the earliest failing phase, with every error of all phases in its diagnostics
+    public CompilationResult getResult() {
+        return semantic.result();
+    }
+
+    public ArrayList<Token> tokens() {
+        ArrayList<Token> all = new ArrayList<>((int) tokenCount);
+        for (Line line : lines) {
+            all.addAll(line.tokens.toTokens());
+        }
+        return all;
+    }
+
+    private static Line lex(CharSequence text) {
+        String source = text.toString();
+        TokenBuffer tokens = new TokenBuffer(source, 8);
+        StreamingLexer lexer = new StreamingLexer(StreamingLexer.into(tokens));
+        lexer.feed(source);
+        lexer.finish();
+        if (tokens.size() == 0) return new Line(NO_TOKENS, source.length(), 0);
+        int unknown = 0;
+        for (int i = 0; i < tokens.size(); i++) {
+            if (tokens.is(i, TokenKind.UNKNOWN)) unknown++;
+        }
+        return new Line(tokens, source.length(), unknown);
+    }
+}
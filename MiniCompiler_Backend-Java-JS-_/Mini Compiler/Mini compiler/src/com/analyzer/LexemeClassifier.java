@@ -0,0 +1,94 @@
+package com.analyzer;
+
+import com.model.DataType;
+import com.model.TokenKind;
+
+/**
+ * Single-scan, allocation-free classification of lexemes, shared by the lexer and the semantic
+ * checks. Identifiers are [a-zA-Z_][a-zA-Z0-9_]*; numbers are whatever {@link LiteralValidator}
+ * can read, of any size, so that a literal too large for its type is a semantic error.
+ */
+public final class LexemeClassifier {
+
+    public enum LexemeClass {
+        DATA_TYPE(TokenKind.DATA_TYPE),
+        INT_LITERAL(TokenKind.VALUE),
+        FLOAT_LITERAL(TokenKind.VALUE),
+        BOOLEAN_LITERAL(TokenKind.VALUE),
+        STRING_LITERAL(TokenKind.VALUE),
+        CHAR_LITERAL(TokenKind.VALUE),
+        IDENTIFIER(TokenKind.IDENTIFIER),
+        UNKNOWN(TokenKind.UNKNOWN);
+
+        private final TokenKind kind;
+
+        LexemeClass(TokenKind kind) {
+            this.kind = kind;
+        }
+
+        public TokenKind kind() { return kind; }
+    }
+
+    private static final byte DIGIT = 1;
+    private static final byte IDENT_START = 2;
+    private static final byte IDENT_PART = 4;
+    private static final byte[] CHAR_CLASS = new byte[128];
+    private static final DataType[] DATA_TYPES = DataType.values();
+
+    static {
+        for (char c = '0'; c <= '9'; c++) CHAR_CLASS[c] = DIGIT | IDENT_PART;
+        for (char c = 'a'; c <= 'z'; c++) CHAR_CLASS[c] = IDENT_START | IDENT_PART;
+        for (char c = 'A'; c <= 'Z'; c++) CHAR_CLASS[c] = IDENT_START | IDENT_PART;
+        CHAR_CLASS['_'] = IDENT_START | IDENT_PART;
+    }
+
+    private LexemeClassifier() {}
+
+    public static LexemeClass classify(CharSequence text) {
+        return classify(text, 0, text.length());
+    }
+
+    public static LexemeClass classify(CharSequence text, int start, int end) {
+        if (start >= end) return LexemeClass.UNKNOWN;
+        char first = text.charAt(start);
+        if (first == '"' || first == '\'') {
+            // a lone quote counts as both ends, like the old startsWith/endsWith checks
+            if (text.charAt(end - 1) != first) return LexemeClass.UNKNOWN;
+            return first == '"' ? LexemeClass.STRING_LITERAL : LexemeClass.CHAR_LITERAL;
+        }
+        if (is(first, DIGIT)) return LiteralValidator.classifyNumber(text, start, end);
+        if (!is(first, IDENT_START)) return LexemeClass.UNKNOWN;
+        for (int i = start + 1; i < end; i++) {
+            if (!is(text.charAt(i), IDENT_PART)) return LexemeClass.UNKNOWN;
+        }
+        if (dataType(text, start, end) != null) return LexemeClass.DATA_TYPE;
+        if (equals(text, start, end, "true") || equals(text, start, end, "false")) {
+            return LexemeClass.BOOLEAN_LITERAL;
+        }
+        return LexemeClass.IDENTIFIER;
+    }
+
+    public static DataType dataType(CharSequence text) {
+        return dataType(text, 0, text.length());
+    }
+
+    public static DataType dataType(CharSequence text, int start, int end) {
+        for (DataType type : DATA_TYPES) {
+            if (equals(text, start, end, type.getKeyword())) return type;
+        }
+        return null;
+    }
+
+    private static boolean is(char c, byte charClass) {
+        return c < 128 && (CHAR_CLASS[c] & charClass) != 0;
+    }
+
+    static boolean equals(CharSequence text, int start, int end, String keyword) {
+        int len = keyword.length();
+        if (end - start != len) return false;
+        for (int k = 0; k < len; k++) {
+            if (text.charAt(start + k) != keyword.charAt(k)) return false;
+        }
+        return true;
+    }
+}
@@ -3,7 +3,7 @@ const Token = require('./token');
 class LexicalAnalyzer {
     static tokenize(input) {
         const tokens = [];
-        const lines = input.split('\n');
+        const lines = input.split(/\r\n|\r|\n/);
         for (const line of lines) {
             const trimmedLine = line.trim();
             let i = 0;
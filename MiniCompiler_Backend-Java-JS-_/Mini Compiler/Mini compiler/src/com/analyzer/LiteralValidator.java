@@ -0,0 +1,301 @@
+package com.analyzer;
+
+import com.analyzer.LexemeClassifier.LexemeClass;
+import com.model.DataType;
+
+/**
+ * Checks that a literal is a value of a declared type, reading each digit once, without
+ * allocating and without exceptions.
+ *
+ * Integers are decimal, hex (0x) or binary (0b), with any number of '_' between digits and an
+ * L suffix only for long. Hex and binary may use every bit of an int or long, as in Java; a
+ * decimal literal must not be larger than the type's maximum. Reals are decimal, with a
+ * fraction, an exponent or an f or d suffix; a d suffix is only for double, and the value must
+ * not round to infinity or, unless it is zero, to zero. A char is one character or one escape:
+ * \b \t \n \f \r \s \" \' \\, an octal escape up to \377, or a 'u' escape of four hex digits.
+ *
+ * Unlike Java, and as this compiler always did, decimal literals need no suffix: long takes
+ * any decimal value up to its maximum and float takes unsuffixed reals. A leading 0 does not
+ * make a literal octal.
+ */
+public final class LiteralValidator {
+
+    public enum Verdict {
+        VALID,
+        // a literal of another kind, such as "text" for an int or 5L for a short
+        INCOMPATIBLE,
+        // the right kind of literal, but not a value of the type
+        OUT_OF_RANGE
+    }
+
+    // results of scanReal() that are not a decimal exponent
+    private static final int NOT_REAL = Integer.MIN_VALUE;
+    private static final int ZERO = Integer.MAX_VALUE;
+    // exponents are only read up to here, far beyond any limit
+    private static final int EXPONENT_CAP = 100_000;
+
+    // powers of ten that are certainly in range: a value of 10^(e-1) up to 10^e with e between these
+    private static final int FLOAT_LOWEST = -44;
+    private static final int FLOAT_HIGHEST = 38;
+    private static final int DOUBLE_LOWEST = -322;
+    private static final int DOUBLE_HIGHEST = 308;
+
+    private LiteralValidator() {}
+
+    public static Verdict check(DataType type, CharSequence text) {
+        return check(type, text, 0, text.length());
+    }
+
+    public static Verdict check(DataType type, CharSequence text, int start, int end) {
+        switch (type) {
+            case BYTE: return checkInteger(text, start, end, Byte.MAX_VALUE, Byte.MAX_VALUE, false);
+            case SHORT: return checkInteger(text, start, end, Short.MAX_VALUE, Short.MAX_VALUE, false);
+            case INT: return checkInteger(text, start, end, Integer.MAX_VALUE, 0xffffffffL, false);
+            case LONG: return checkInteger(text, start, end, Long.MAX_VALUE, -1L, true);
+            case FLOAT:
+            case DOUBLE: return checkReal(type, text, start, end);
+            case CHAR: return checkChar(text, start, end);
+            case STRING:
+                // a lone quote counts as both ends, like the old startsWith/endsWith checks
+                return end > start && text.charAt(start) == '"' && text.charAt(end - 1) == '"'
+                        ? Verdict.VALID : Verdict.INCOMPATIBLE;
+            default:
+                return LexemeClassifier.equals(text, start, end, "true") || LexemeClassifier.equals(text, start, end, "false")
+                        ? Verdict.VALID : Verdict.INCOMPATIBLE;
+        }
+    }
+
+    // INT_LITERAL or FLOAT_LITERAL for any well-formed number, whatever its size, else UNKNOWN
+    static LexemeClass classifyNumber(CharSequence text, int start, int end) {
+        if (checkInteger(text, start, end, Long.MAX_VALUE, -1L, true) != Verdict.INCOMPATIBLE) {
+            return LexemeClass.INT_LITERAL;
+        }
+        char last = lower(text.charAt(end - 1));
+        boolean suffixed = last == 'f' || last == 'd';
+        return scanReal(text, start, suffixed ? end - 1 : end, suffixed) != NOT_REAL
+                ? LexemeClass.FLOAT_LITERAL : LexemeClass.UNKNOWN;
+    }
+
+    /**
+     * The value of an integer literal that passed {@link #check}; hex and binary literals wrap
+     * around into the sign bit, so 0xffffffff is -1 as an int.
+     */
+    public static long integerValue(DataType type, CharSequence text) {
+        int end = text.length();
+        if (lower(text.charAt(end - 1)) == 'l') end--;
+        int radix = radix(text, 0, end);
+        long value = 0;
+        for (int i = radix == 10 ? 0 : 2; i < end; i++) {
+            char c = text.charAt(i);
+            if (c != '_') value = value * radix + digit(c, radix);
+        }
+        return type == DataType.INT ? (int) value : value;
+    }
+
+    // the value of a real literal that passed check(), rounded to float for a float
+    public static double realValue(DataType type, CharSequence text) {
+        String literal = withoutUnderscores(text, 0, text.length());
+        return type == DataType.FLOAT ? Float.parseFloat(literal) : Double.parseDouble(literal);
+    }
+
+    // the value of a char literal that passed check()
+    public static char charValue(CharSequence text) {
+        char c = text.charAt(1);
+        return c == '\\' ? (char) escape(text, 1, text.length() - 1) : c;
+    }
+
+    private static Verdict checkInteger(CharSequence text, int start, int end, long decimalMax,
+                                        long radixMax, boolean isLong) {
+        if (end <= start) return Verdict.INCOMPATIBLE;
+        boolean suffixed = lower(text.charAt(end - 1)) == 'l';
+        if (suffixed) end--;
+        int radix = radix(text, start, end);
+        int i = radix == 10 ? start : start + 2;
+        // '_' only goes between digits
+        if (i >= end || digit(text.charAt(i), radix) < 0 || text.charAt(end - 1) == '_') {
+            return Verdict.INCOMPATIBLE;
+        }
+        int shift = Integer.numberOfTrailingZeros(radix);
+        boolean overflow = false;
+        long value = 0;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '_') continue;
+            int d = digit(c, radix);
+            if (d < 0) return Verdict.INCOMPATIBLE;
+            if (radix == 10) {
+                overflow |= value > (Long.MAX_VALUE - d) / 10;
+                value = value * 10 + d;
+            } else {
+                overflow |= value >>> (64 - shift) != 0;
+                value = value << shift | d;
+            }
+        }
+        if (suffixed && !isLong) return Verdict.INCOMPATIBLE;
+        if (overflow) return Verdict.OUT_OF_RANGE;
+        boolean inRange = radix == 10 ? value <= decimalMax : Long.compareUnsigned(value, radixMax) <= 0;
+        return inRange ? Verdict.VALID : Verdict.OUT_OF_RANGE;
+    }
+
+    private static Verdict checkReal(DataType type, CharSequence text, int start, int end) {
+        if (end <= start) return Verdict.INCOMPATIBLE;
+        char last = lower(text.charAt(end - 1));
+        boolean suffixed = last == 'f' || last == 'd';
+        int magnitude = scanReal(text, start, suffixed ? end - 1 : end, suffixed);
+        if (magnitude == NOT_REAL || (type == DataType.FLOAT && last == 'd')) return Verdict.INCOMPATIBLE;
+        if (magnitude == ZERO) return Verdict.VALID;
+        // an f literal is a float even when it initializes a double
+        boolean single = type == DataType.FLOAT || last == 'f';
+        int lowest = single ? FLOAT_LOWEST : DOUBLE_LOWEST;
+        int highest = single ? FLOAT_HIGHEST : DOUBLE_HIGHEST;
+        if (magnitude >= lowest && magnitude <= highest) return Verdict.VALID;
+        if (magnitude < lowest - 1 || magnitude > highest + 1) return Verdict.OUT_OF_RANGE;
+        // within a factor of ten of a limit, so only rounding can tell; rare enough to allocate
+        String literal = withoutUnderscores(text, start, end);
+        double value = single ? Float.parseFloat(literal) : Double.parseDouble(literal);
+        return value != 0 && !Double.isInfinite(value) ? Verdict.VALID : Verdict.OUT_OF_RANGE;
+    }
+
+    /**
+     * Scans digits[.digits][e[+-]digits] in [start, end), which needs a fraction or an exponent
+     * unless the caller stripped a suffix. Returns NOT_REAL when it is no such literal, ZERO for
+     * a zero value, or else the e for which the value lies in [10^(e-1), 10^e).
+     */
+    private static int scanReal(CharSequence text, int start, int end, boolean suffixed) {
+        if (start >= end || !isDecimal(text.charAt(start))) return NOT_REAL;
+        int i = start;
+        // digits from the first non-zero one on, or the zeros after the point before it
+        int significant = 0;
+        int leadingZeros = 0;
+        boolean nonZero = false;
+        for (; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '_') continue;
+            if (!isDecimal(c)) break;
+            if (nonZero || c != '0') {
+                nonZero = true;
+                significant++;
+            }
+        }
+        if (text.charAt(i - 1) == '_') return NOT_REAL;
+        boolean fraction = i < end && text.charAt(i) == '.';
+        if (fraction) {
+            if (++i >= end || !isDecimal(text.charAt(i))) return NOT_REAL;
+            for (; i < end; i++) {
+                char c = text.charAt(i);
+                if (c == '_') continue;
+                if (!isDecimal(c)) break;
+                if (!nonZero) {
+                    if (c == '0') leadingZeros++;
+                    else nonZero = true;
+                }
+            }
+            if (text.charAt(i - 1) == '_') return NOT_REAL;
+        }
+        int exponent = 0;
+        boolean exponentPart = i < end && lower(text.charAt(i)) == 'e';
+        if (exponentPart) {
+            boolean negative = ++i < end && text.charAt(i) == '-';
+            if (i < end && (negative || text.charAt(i) == '+')) i++;
+            if (i >= end || !isDecimal(text.charAt(i))) return NOT_REAL;
+            for (; i < end; i++) {
+                char c = text.charAt(i);
+                if (c == '_') continue;
+                if (!isDecimal(c)) break;
+                if (exponent < EXPONENT_CAP) exponent = exponent * 10 + (c - '0');
+            }
+            if (text.charAt(i - 1) == '_') return NOT_REAL;
+            if (negative) exponent = -exponent;
+        }
+        if (i != end || !(fraction || exponentPart || suffixed)) return NOT_REAL;
+        if (!nonZero) return ZERO;
+        return (significant > 0 ? significant : -leadingZeros) + exponent;
+    }
+
+    private static Verdict checkChar(CharSequence text, int start, int end) {
+        if (end - start < 3 || text.charAt(start) != '\'' || text.charAt(end - 1) != '\'') {
+            return Verdict.INCOMPATIBLE;
+        }
+        int i = start + 1;
+        int contentEnd = end - 1;
+        char c = text.charAt(i);
+        if (c != '\\') return contentEnd - i == 1 && c != '\'' ? Verdict.VALID : Verdict.INCOMPATIBLE;
+        long escape = escape(text, i, contentEnd);
+        return escape >= 0 && escape >>> 16 == contentEnd ? Verdict.VALID : Verdict.INCOMPATIBLE;
+    }
+
+    /**
+     * Reads the escape whose backslash is at i; returns where it ends in the bits above 16 and
+     * the char it stands for in the low 16 bits, or -1 when it is no valid escape.
+     */
+    private static long escape(CharSequence text, int i, int end) {
+        if (++i >= end) return -1;
+        char c = text.charAt(i++);
+        switch (c) {
+            case 'b': return (long) i << 16 | '\b';
+            case 't': return (long) i << 16 | '\t';
+            case 'n': return (long) i << 16 | '\n';
+            case 'f': return (long) i << 16 | '\f';
+            case 'r': return (long) i << 16 | '\r';
+            case 's': return (long) i << 16 | ' ';
+            case '"':
+            case '\'':
+            case '\\': return (long) i << 16 | c;
+            case 'u':
+                while (i < end && text.charAt(i) == 'u') i++;
+                int value = 0;
+                for (int k = 0; k < 4; k++, i++) {
+                    int d = i < end ? digit(text.charAt(i), 16) : -1;
+                    if (d < 0) return -1;
+                    value = value << 4 | d;
+                }
+                return (long) i << 16 | value;
+            default:
+                if (c < '0' || c > '7') return -1;
+                // up to three octal digits, but no more than \377
+                int octal = c - '0';
+                int max = c <= '3' ? 3 : 2;
+                for (int n = 1; n < max && i < end && text.charAt(i) >= '0' && text.charAt(i) <= '7'; n++, i++) {
+                    octal = octal * 8 + (text.charAt(i) - '0');
+                }
+                return (long) i << 16 | octal;
+        }
+    }
+
+    private static int radix(CharSequence text, int start, int end) {
+        if (end - start > 2 && text.charAt(start) == '0') {
+            char x = lower(text.charAt(start + 1));
+            if (x == 'x') return 16;
+            if (x == 'b') return 2;
+        }
+        return 10;
+    }
+
+    private static int digit(char c, int radix) {
+        int d;
+        if (c >= '0' && c <= '9') {
+            d = c - '0';
+        } else {
+            char l = lower(c);
+            d = l >= 'a' && l <= 'f' ? l - 'a' + 10 : -1;
+        }
+        return d < radix ? d : -1;
+    }
+
+    private static boolean isDecimal(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    // ASCII letters only; everything else is returned as it is
+    private static char lower(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c | 0x20) : c;
+    }
+
+    private static String withoutUnderscores(CharSequence text, int start, int end) {
+        StringBuilder out = new StringBuilder(end - start);
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) != '_') out.append(text.charAt(i));
+        }
+        return out.toString();
+    }
+}
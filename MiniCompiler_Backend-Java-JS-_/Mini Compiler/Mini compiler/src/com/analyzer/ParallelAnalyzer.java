@@ -0,0 +1,330 @@
+package com.analyzer;
+
+import com.model.CompilationResult;
+import com.model.Phase;
+import com.model.PhaseMetrics;
+import com.model.SymbolTable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Splits the input into chunks at top-level ';' characters, lexes and checks the chunks on a
+ * ForkJoinPool and then merges the per-chunk symbol tables in source order. Gives the same
+ * result as {@link CompilerPipeline}, including the first error and the counts up to it.
+ * Splits are only placed after a line break, so a file that is one huge line is not split.
+ * An initializer that names a variable declared in an earlier chunk cannot be checked within
+ * its own chunk; the input is then checked again in one sequential pass.
+ */
+public class ParallelAnalyzer {
+    public static final long PARALLEL_THRESHOLD = 64L << 20;
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int MAX_CHUNK_SIZE = 256 << 20;
+    private static final int WINDOW_BITS = 30;
+
+    public static CompilationResult compile(CharSequence source) {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        return compile(source, pool, chunkSize(source.length(), pool));
+    }
+
+    public static CompilationResult compile(CharSequence source, ForkJoinPool pool, int chunkSize) {
+        long[] bounds = boundaries(source.length(), chunkSize, i -> source.charAt((int) i));
+        List<ChunkTask> tasks = new ArrayList<>();
+        for (int k = 0; k + 1 < bounds.length; k++) {
+            int start = (int) bounds[k];
+            int end = (int) bounds[k + 1];
+            tasks.add(new ChunkTask((checker, atLineStart) -> {
+                StreamingLexer lexer = new StreamingLexer(checker, 0, atLineStart);
+                for (int off = start; off < end && !checker.isFailed(); off += StreamingLexer.CHUNK_SIZE) {
+                    lexer.feed(source.subSequence(off, Math.min(end, off + StreamingLexer.CHUNK_SIZE)));
+                }
+                lexer.finish();
+                return lexer.getPosition();
+            }, start == 0));
+        }
+        CompilationResult result = merge(pool.invoke(new AllTasks(tasks)));
+        return result != null ? result : CompilerPipeline.compile(source);
+    }
+
+    public static CompilationResult compile(Path path) throws IOException {
+        return compile(path, null);
+    }
+
+    /**
+     * Also adds the counts of the run to metrics, with its wall time and the allocation of every
+     * chunk as fused figures, as the chunks run the phases interleaved like the sequential pass.
+     */
+    public static CompilationResult compile(Path path, PhaseMetrics metrics) throws IOException {
+        ForkJoinPool pool = ForkJoinPool.commonPool();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return compile(channel, pool, chunkSize(channel.size(), pool), metrics);
+        }
+    }
+
+    public static CompilationResult compile(FileChannel channel, ForkJoinPool pool, int chunkSize) throws IOException {
+        return compile(channel, pool, chunkSize, null);
+    }
+
+    private static CompilationResult compile(FileChannel channel, ForkJoinPool pool, int chunkSize,
+                                             PhaseMetrics metrics) throws IOException {
+        long started = System.nanoTime();
+        long size = channel.size();
+        // 1 GB read-only windows are only used to find split points; chunks map their own range
+        MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((size >>> WINDOW_BITS) + 1)];
+        for (int w = 0; w < windows.length; w++) {
+            long from = (long) w << WINDOW_BITS;
+            windows[w] = channel.map(FileChannel.MapMode.READ_ONLY, from, Math.min(1L << WINDOW_BITS, size - from));
+        }
+        long mask = (1L << WINDOW_BITS) - 1;
+        // the chunks run on pool threads, so they watch the caller for an interrupt
+        Thread caller = Thread.currentThread();
+        long[] bounds = boundaries(size, chunkSize, i -> windows[(int) (i >>> WINDOW_BITS)].get((int) (i & mask)));
+        List<ChunkTask> tasks = new ArrayList<>();
+        for (int k = 0; k + 1 < bounds.length; k++) {
+            long start = bounds[k];
+            long end = bounds[k + 1];
+            tasks.add(new ChunkTask((checker, atLineStart) -> lex(channel, start, end, checker, atLineStart,
+                    () -> CompilerPipeline.stopped(checker, caller)), start == 0));
+        }
+        List<ChunkResult> chunks;
+        try {
+            chunks = pool.invoke(new AllTasks(tasks));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        CompilationResult result = merge(chunks);
+        PhaseMetrics phases = CompilerPipeline.measured(metrics);
+        if (phases != null) {
+            record(phases, chunks, result, System.nanoTime() - started);
+            PhaseClock.emit(phases);
+            if (metrics != null) metrics.add(phases);
+        }
+        // the channel belongs to the caller, so the reader is not closed
+        return result != null ? result
+                : CompilerPipeline.compile(Channels.newReader(channel.position(0), StreamingLexer.newDecoder(), -1),
+                        metrics, null);
+    }
+
+    // a run that falls back, or fails and is redone for the full list of errors, leaves the
+    // counting to the sequential pass
+    private static void record(PhaseMetrics phases, List<ChunkResult> chunks, CompilationResult result, long nanos) {
+        long allocated = 0;
+        long chars = 0;
+        for (ChunkResult chunk : chunks) {
+            allocated += chunk.allocated;
+            chars += chunk.length;
+        }
+        phases.recordFused(nanos, allocated);
+        if (result == null || !result.isSuccessful()) return;
+        long tokens = result.getTokenCount();
+        long declarations = result.getDeclarationCount();
+        phases.record(Phase.LEXICAL, 0, tokens, 0, chars, 0);
+        phases.record(Phase.SYNTAX, 0, tokens, declarations, chars, 0);
+        phases.record(Phase.SEMANTIC, 0, tokens, declarations, chars, 0);
+    }
+
+    private static int chunkSize(long length, ForkJoinPool pool) {
+        long size = length / (pool.getParallelism() * 4L);
+        return (int) Math.max(MIN_CHUNK_SIZE, Math.min(MAX_CHUNK_SIZE, size));
+    }
+
+    // chunk starts: after the first top-level ';' that follows a line break past each target
+    static long[] boundaries(long length, long chunkSize, LongUnaryOperator at) {
+        long[] bounds = new long[8];
+        int count = 1;
+        long next = chunkSize;
+        while (next < length) {
+            long i = next;
+            while (i < length && at.applyAsLong(i) != '\n' && at.applyAsLong(i) != '\r') i++;
+            long quote = 0;
+            long boundary = length;
+            for (; i < length; i++) {
+                long c = at.applyAsLong(i);
+                if (c == '\n' || c == '\r') {
+                    quote = 0;
+                } else if (quote != 0) {
+                    if (c == '\\') {
+                        long escaped = i + 1 < length ? at.applyAsLong(i + 1) : '\n';
+                        if (escaped != '\n' && escaped != '\r') i++;
+                    } else if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == ';') {
+                    boundary = i + 1;
+                    break;
+                }
+            }
+            if (boundary >= length) break;
+            if (count == bounds.length) bounds = Arrays.copyOf(bounds, count * 2);
+            bounds[count++] = boundary;
+            next = boundary + chunkSize;
+        }
+        bounds = Arrays.copyOf(bounds, count + 1);
+        bounds[count] = length;
+        return bounds;
+    }
+
+    // returns the chunk's length in chars
+    private static long lex(FileChannel channel, long start, long end, DeclarationChecker checker,
+                            boolean atLineStart, BooleanSupplier stop) throws IOException {
+        ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        if (ByteLexer.supports(Charset.defaultCharset())) {
+            ByteLexer lexer = new ByteLexer(checker, 0, atLineStart);
+            lexer.feed(in, stop);
+            return lexer.getPosition();
+        }
+        StreamingLexer lexer = new StreamingLexer(checker, 0, atLineStart);
+        decode(in, lexer, stop);
+        lexer.finish();
+        return lexer.getPosition();
+    }
+
+    private static void decode(ByteBuffer in, StreamingLexer lexer, BooleanSupplier stop) {
+        CharBuffer out = CharBuffer.allocate(StreamingLexer.CHUNK_SIZE);
+        CharsetDecoder decoder = StreamingLexer.newDecoder();
+        while (!stop.getAsBoolean()) {
+            CoderResult result = decoder.decode(in, out, true);
+            out.flip();
+            lexer.feed(out.array(), out.position(), out.remaining());
+            out.clear();
+            if (result.isUnderflow()) {
+                decoder.flush(out);
+                out.flip();
+                lexer.feed(out.array(), out.position(), out.remaining());
+                return;
+            }
+        }
+    }
+
+    // null when a chunk after the first failed on a name that an earlier chunk may declare
+    private static CompilationResult merge(List<ChunkResult> chunks) {
+        int expected = 0;
+        for (ChunkResult chunk : chunks) expected += chunk.symbols.size();
+        SymbolTable globals = new SymbolTable(expected);
+        long base = 0;
+        long tokens = 0;
+        long declarations = 0;
+        for (ChunkResult chunk : chunks) {
+            SymbolTable symbols = chunk.symbols;
+            for (int d = 0; d < chunk.declarationCount; d++) {
+                CharSequence name = symbols.name(d);
+                long position = base + symbols.position(d);
+                if (globals.containsOrInsert(name, symbols.typeCode(d), position) >= 0) {
+                    return new CompilationResult(Phase.SEMANTIC, position,
+                            "Duplicate variable '" + name + "'",
+                            tokens + chunk.tokensAt[d], declarations + d + 1);
+                }
+            }
+            CompilationResult local = chunk.result;
+            // a declaration that failed its type check locally may still be an earlier duplicate
+            if (local.getFailedPhase() == Phase.SEMANTIC && globals.contains(chunk.failedIdentifier)) {
+                return new CompilationResult(Phase.SEMANTIC, base + chunk.failedIdentifierStart,
+                        "Duplicate variable '" + chunk.failedIdentifier + "'",
+                        tokens + local.getTokenCount(), declarations + local.getDeclarationCount());
+            }
+            if (chunk.unresolved && base > 0) return null;
+            if (!local.isSuccessful()) {
+                return new CompilationResult(local.getFailedPhase(), base + local.getErrorOffset(),
+                        local.getMessage(), tokens + local.getTokenCount(),
+                        declarations + local.getDeclarationCount());
+            }
+            base += chunk.length;
+            tokens += local.getTokenCount();
+            declarations += local.getDeclarationCount();
+        }
+        return new CompilationResult(null, -1, null, tokens, declarations);
+    }
+
+    private interface ChunkLexer {
+        // lexes the chunk into the checker and returns its length in chars
+        long lex(DeclarationChecker checker, boolean atLineStart) throws IOException;
+    }
+
+    private static class ChunkResult implements DeclarationChecker.DeclarationListener {
+        private long[] tokensAt = new long[64];
+        private int declarationCount;
+        private SymbolTable symbols;
+        private CompilationResult result;
+        private String failedIdentifier;
+        private long failedIdentifierStart;
+        private boolean unresolved;
+        private long length;
+        private long allocated;
+
+        @Override
+        public void declared(SymbolTable table, int symbol, long tokenCount) {
+            if (declarationCount == tokensAt.length) {
+                tokensAt = Arrays.copyOf(tokensAt, declarationCount * 2);
+            }
+            tokensAt[declarationCount] = tokenCount;
+            declarationCount++;
+        }
+    }
+
+    private static class ChunkTask extends RecursiveTask<ChunkResult> {
+        private final ChunkLexer lexer;
+        private final boolean atLineStart;
+
+        ChunkTask(ChunkLexer lexer, boolean atLineStart) {
+            this.lexer = lexer;
+            this.atLineStart = atLineStart;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            long allocated = PhaseClock.allocated();
+            ChunkResult chunk = new ChunkResult();
+            DeclarationChecker checker = new DeclarationChecker();
+            checker.setListener(chunk);
+            try {
+                chunk.length = lexer.lex(checker, atLineStart);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            chunk.result = checker.finish(chunk.length);
+            chunk.symbols = checker.getSymbols();
+            chunk.unresolved = checker.hasUnresolvedReference();
+            if (chunk.result.getFailedPhase() == Phase.SEMANTIC) {
+                chunk.failedIdentifier = checker.getIdentifier().toString();
+                chunk.failedIdentifierStart = checker.getIdentifierStart();
+            }
+            chunk.allocated = PhaseClock.allocated() - allocated;
+            return chunk;
+        }
+    }
+
+    private static class AllTasks extends RecursiveTask<List<ChunkResult>> {
+        private final List<ChunkTask> tasks;
+
+        AllTasks(List<ChunkTask> tasks) {
+            this.tasks = tasks;
+        }
+
+        @Override
+        protected List<ChunkResult> compute() {
+            ForkJoinTask.invokeAll(tasks);
+            List<ChunkResult> results = new ArrayList<>(tasks.size());
+            for (ChunkTask task : tasks) results.add(task.join());
+            return results;
+        }
+    }
+}
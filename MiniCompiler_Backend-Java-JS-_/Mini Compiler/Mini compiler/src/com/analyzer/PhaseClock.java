@@ -0,0 +1,86 @@
+package com.analyzer;
+
+import com.model.Phase;
+import com.model.PhaseMetrics;
+import java.lang.management.ManagementFactory;
+
+// Splits the time and allocation of the current thread into consecutive phase laps, or samples
+// them after each chunk of a fused pass
+class PhaseClock {
+    private static final com.sun.management.ThreadMXBean THREADS = threads();
+
+    private long lastNanos;
+    private long lastAllocated;
+    private long lastTokens;
+    private long lastDeclarations;
+
+    PhaseClock() {
+        lastNanos = System.nanoTime();
+        lastAllocated = allocated();
+    }
+
+    void lap(PhaseMetrics metrics, Phase phase, long tokens, long declarations, long chars) {
+        long now = System.nanoTime();
+        long allocated = allocated();
+        metrics.record(phase, now - lastNanos, tokens, declarations, chars, allocated - lastAllocated);
+        lastNanos = now;
+        lastAllocated = allocated;
+    }
+
+    // after a chunk of a fused pass: what the checker counted since the last sample, all phases
+    // having seen every token; chars may be 0 until the end when the chunk sizes are not known
+    void sample(PhaseMetrics metrics, DeclarationChecker checker, long chars) {
+        long now = System.nanoTime();
+        long allocated = allocated();
+        long tokens = checker.getTokenCount() - lastTokens;
+        long declarations = checker.getDeclarationCount() - lastDeclarations;
+        metrics.recordFused(now - lastNanos, allocated - lastAllocated);
+        metrics.record(Phase.LEXICAL, 0, tokens, 0, chars, 0);
+        metrics.record(Phase.SYNTAX, 0, tokens, declarations, chars, 0);
+        metrics.record(Phase.SEMANTIC, 0, tokens, declarations, chars, 0);
+        lastNanos = now;
+        lastAllocated = allocated;
+        lastTokens += tokens;
+        lastDeclarations += declarations;
+    }
+
+    // commits one PhaseEvent per phase, and one for a fused pass; cheap when the events are disabled
+    static void emit(PhaseMetrics metrics) {
+        for (Phase phase : Phase.values()) {
+            PhaseEvent event = new PhaseEvent();
+            if (!event.isEnabled()) return;
+            event.phase = phase.getDisplayName();
+            event.wallTime = metrics.getNanos(phase);
+            event.tokens = metrics.getTokens(phase);
+            event.declarations = metrics.getDeclarations(phase);
+            event.chars = metrics.getChars(phase);
+            event.allocated = metrics.getAllocatedBytes(phase);
+            event.commit();
+        }
+        if (metrics.getFusedNanos() > 0) {
+            PhaseEvent event = new PhaseEvent();
+            event.phase = "Fused";
+            event.wallTime = metrics.getFusedNanos();
+            event.tokens = metrics.getTokens(Phase.LEXICAL);
+            event.declarations = metrics.getDeclarations(Phase.SEMANTIC);
+            event.chars = metrics.getChars(Phase.LEXICAL);
+            event.allocated = metrics.getFusedAllocatedBytes();
+            event.commit();
+        }
+    }
+
+    static boolean eventsEnabled() {
+        return new PhaseEvent().isEnabled();
+    }
+
+    static long allocated() {
+        return THREADS != null ? THREADS.getCurrentThreadAllocatedBytes() : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean threads() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return null;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        return threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled() ? threads : null;
+    }
+}
@@ -0,0 +1,37 @@
+package com.analyzer;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+// Flight Recorder summary of one phase of one compilation, committed when the compilation ends
+@Name("com.minicompiler.Phase")
+@Label("Compiler Phase")
+@Category("MiniCompiler")
+@Description("Time, tokens, declarations and allocation of one analysis phase, or of the fused pass")
+@StackTrace(false)
+class PhaseEvent extends jdk.jfr.Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Wall Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long wallTime;
+
+    @Label("Tokens")
+    long tokens;
+
+    @Label("Declarations")
+    long declarations;
+
+    @Label("Characters")
+    long chars;
+
+    @Label("Allocated")
+    @DataAmount(DataAmount.BYTES)
+    long allocated;
+}
@@ -0,0 +1,118 @@
+package com.analyzer;
+
+import com.model.CompilationResult;
+import com.model.Diagnostics;
+import com.model.GlobalSymbolTable;
+import com.model.GlobalSymbolTable.Duplicate;
+import com.model.Phase;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Analyzes the files of a project, in which no variable may be declared twice, not even in
+ * different files. Each file is checked on its own, from any thread, and declares the variables
+ * it accepts in one {@link GlobalSymbolTable}; {@link #finish} then reports every duplicate
+ * between files, with both locations, in the file that declares it last. Results depend on the
+ * order of the files only, never on thread scheduling.
+ */
+public class ProjectAnalyzer {
+    private final List<Path> files;
+    private final GlobalSymbolTable globals = new GlobalSymbolTable();
+
+    public ProjectAnalyzer(List<Path> files) {
+        this.files = List.copyOf(files);
+    }
+
+    public GlobalSymbolTable getGlobals() { return globals; }
+
+    // every error of the file, with positions; safe to call for different files at once
+    public CompilationResult analyze(int file) throws IOException {
+        Path path = files.get(file);
+        Diagnostics diagnostics = new Diagnostics();
+        DeclarationChecker checker = new DeclarationChecker();
+        checker.setDiagnostics(diagnostics);
+        checker.setListener((symbols, symbol, tokenCount) ->
+                globals.declare(symbols.name(symbol), symbols.typeCode(symbol), file, symbols.position(symbol)));
+        CompilationResult result = checker.finish(StreamingLexer.tokenize(path, checker, checker::isFailed));
+        if (!diagnostics.isEmpty()) resolve(path, diagnostics);
+        return result;
+    }
+
+    /**
+     * Adds the duplicates between files to the results, indexed like the files, once every
+     * file was analyzed; null stands for a file that could not be read. A duplicate becomes the
+     * verdict of a file unless an earlier phase, or an earlier semantic error, failed it.
+     */
+    public CompilationResult[] finish(CompilationResult[] results) throws IOException {
+        CompilationResult[] merged = results.clone();
+        List<Duplicate> duplicates = globals.duplicates();
+        if (duplicates.isEmpty()) return merged;
+
+        // where the first declarations are, as line and column, one read per file
+        Map<Integer, Diagnostics> firsts = new TreeMap<>();
+        for (Duplicate duplicate : duplicates) {
+            firsts.computeIfAbsent(duplicate.getFirstFile(), f -> new Diagnostics(Integer.MAX_VALUE))
+                    .add(Phase.SEMANTIC, duplicate.getFirstPosition(), "");
+        }
+        for (Map.Entry<Integer, Diagnostics> entry : firsts.entrySet()) {
+            resolve(files.get(entry.getKey()), entry.getValue());
+        }
+
+        int i = 0;
+        while (i < duplicates.size()) {
+            int file = duplicates.get(i).getFile();
+            CompilationResult local = merged[file];
+            Duplicate earliest = duplicates.get(i);
+            if (local == null) {
+                // the read failed part way; that error stands for the file
+                while (i < duplicates.size() && duplicates.get(i).getFile() == file) i++;
+                continue;
+            }
+            Diagnostics diagnostics = local.getDiagnostics();
+            String verdict = null;
+            for (; i < duplicates.size() && duplicates.get(i).getFile() == file; i++) {
+                Duplicate duplicate = duplicates.get(i);
+                Diagnostics first = firsts.get(duplicate.getFirstFile());
+                int at = indexOf(first, duplicate.getFirstPosition());
+                String message = duplicateMessage(duplicate.getName(), files.get(duplicate.getFirstFile()),
+                        first.line(at), first.column(at));
+                diagnostics.add(Phase.SEMANTIC, duplicate.getPosition(), message);
+                if (verdict == null) verdict = message;
+            }
+            resolve(files.get(file), diagnostics);
+            boolean replaces = local.isSuccessful() || (local.getFailedPhase() == Phase.SEMANTIC
+                    && local.getErrorOffset() > earliest.getPosition());
+            if (replaces) {
+                merged[file] = new CompilationResult(Phase.SEMANTIC, earliest.getPosition(), verdict,
+                        local.getTokenCount(), local.getDeclarationCount(), diagnostics);
+            }
+        }
+        return merged;
+    }
+
+    public static String duplicateMessage(String name, Path firstFile, int line, int column) {
+        return "Duplicate variable '" + name + "', first declared in " + firstFile + ":" + line + ":" + column;
+    }
+
+    private static void resolve(Path path, Diagnostics diagnostics) throws IOException {
+        try (Reader reader = StreamingLexer.openReader(path)) {
+            diagnostics.resolvePositions(reader);
+        }
+    }
+
+    // entries are sorted by offset once resolved
+    private static int indexOf(Diagnostics diagnostics, long offset) {
+        int low = 0;
+        int high = diagnostics.size() - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (diagnostics.offset(mid) < offset) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
@@ -0,0 +1,429 @@
+package com.analyzer;
+
+import com.model.CompilationResult;
+import com.model.Diagnostics;
+import com.model.Phase;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caches analysis results by a 64-bit hash and the length of the file content. An LRU map in
+ * memory sits in front of an append-only file of fixed-layout records, of which only the key to
+ * file offset index is held in memory. The file is capped: once full, new results stay in memory
+ * only, and an open that finds it over three quarters full compacts it to the newest records
+ * filling half the cap, dropping any superseded ones too. Safe to share between threads, and
+ * between processes through a lock file next to the store: opening, compacting and every
+ * append hold the lock, and an append first indexes whatever other processes appended. A
+ * compaction marks the file it replaces as retired, so a process still holding that file
+ * reopens the new one. Use one instance per directory in a process. Bump {@link #ANALYZER_VERSION} whenever a change to the analyzers can change a result; each
+ * version has its own store file, so stale results are never read.
+ */
+public class ResultCache implements Closeable {
+    public static final int ANALYZER_VERSION = 4;
+    public static final int DEFAULT_MEMORY_ENTRIES = 4096;
+    public static final long DEFAULT_STORE_BYTES = 64L << 20;
+
+    private static final int MAGIC = 0x4d435243; // "MCRC"
+    // replaces the magic of a store that a compaction has replaced
+    private static final int RETIRED = 0x4d435258; // "MCRX"
+    private static final int HEADER_SIZE = 8;
+    // hash, length, phase, error offset, tokens, declarations, body length; the body holds the
+    // message and the diagnostics
+    private static final int RECORD_HEADER_SIZE = 8 + 8 + 1 + 8 + 8 + 8 + 4;
+    private static final int READ_SIZE = 64 * 1024;
+
+    public interface Compiler {
+        CompilationResult compile(Path path) throws IOException;
+    }
+
+    private static final class Key {
+        private final long hash;
+        private final long length;
+
+        Key(long hash, long length) {
+            this.hash = hash;
+            this.length = length;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).hash == hash && ((Key) o).length == length;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+
+    private final Map<Key, CompilationResult> memory;
+    private final Map<Key, Long> diskIndex = new ConcurrentHashMap<>();
+    private final Path storePath;
+    private final long maxStoreBytes;
+    private FileChannel lockFile;
+    private FileChannel store;
+    // end of the last record indexed; the store may have grown since, by other processes
+    private long indexedSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder diskEvictions = new LongAdder();
+
+    // directory may be null for a memory-only cache
+    public ResultCache(Path directory, int memoryEntries) throws IOException {
+        this(directory, memoryEntries, DEFAULT_STORE_BYTES);
+    }
+
+    public ResultCache(Path directory, int memoryEntries, long maxStoreBytes) throws IOException {
+        this.maxStoreBytes = maxStoreBytes;
+        memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, CompilationResult> eldest) {
+                if (size() <= memoryEntries) return false;
+                evictions.increment();
+                return true;
+            }
+        };
+        if (directory == null) {
+            storePath = null;
+            return;
+        }
+        Files.createDirectories(directory);
+        storePath = directory.resolve("results-v" + ANALYZER_VERSION + ".bin");
+        lockFile = FileChannel.open(directory.resolve("results-v" + ANALYZER_VERSION + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = lockFile.lock();
+            try {
+                store = FileChannel.open(storePath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                        StandardOpenOption.WRITE);
+                loadIndex();
+            } finally {
+                lock.release();
+            }
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    public long getHits() { return hits.sum(); }
+    public long getDiskHits() { return diskHits.sum(); }
+    public long getMisses() { return misses.sum(); }
+    public long getEvictions() { return evictions.sum(); }
+    // results dropped from the store by compaction, or never written because it was full
+    public long getDiskEvictions() { return diskEvictions.sum(); }
+
+    /**
+     * Returns the cached result for the file's content, or compiles it and caches the result.
+     * A file that changes while it is hashed or compiled gets a result that is not cached, as
+     * there is no telling which content it is for.
+     */
+    public CompilationResult compile(Path path, Compiler compiler) throws IOException {
+        BasicFileAttributes before = Files.readAttributes(path, BasicFileAttributes.class);
+        Key key;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            key = new Key(hash(channel), channel.size());
+        }
+        CompilationResult result;
+        synchronized (memory) {
+            result = memory.get(key);
+        }
+        if (result != null) {
+            hits.increment();
+            return result;
+        }
+        result = readRecord(key);
+        if (result != null) {
+            diskHits.increment();
+        } else {
+            misses.increment();
+            result = compiler.compile(path);
+            if (changed(path, before)) return result;
+            writeRecord(key, result);
+        }
+        synchronized (memory) {
+            memory.put(key, result);
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            if (store != null) store.close();
+        } finally {
+            if (lockFile != null) lockFile.close();
+        }
+    }
+
+    private static boolean changed(Path path, BasicFileAttributes before) throws IOException {
+        BasicFileAttributes after = Files.readAttributes(path, BasicFileAttributes.class);
+        return after.size() != before.size() || !after.lastModifiedTime().equals(before.lastModifiedTime())
+                || !Objects.equals(after.fileKey(), before.fileKey());
+    }
+
+    // with the lock held
+    private void loadIndex() throws IOException {
+        diskIndex.clear();
+        long size = store.size();
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        if (size < HEADER_SIZE || store.read(header, 0) < HEADER_SIZE || header.getInt(0) != MAGIC
+                || header.getInt(4) != ANALYZER_VERSION) {
+            // empty or unreadable: start over
+            store.truncate(0);
+            header.clear();
+            header.putInt(MAGIC).putInt(ANALYZER_VERSION).flip();
+            store.write(header, 0);
+            indexedSize = HEADER_SIZE;
+            return;
+        }
+        // start and length of the live record of each key, oldest first
+        Map<Key, long[]> live = new LinkedHashMap<>();
+        indexedSize = scan(HEADER_SIZE, size, live);
+        long liveBytes = 0;
+        for (long[] record : live.values()) liveBytes += record[1];
+        // past three quarters of the cap the store is cut to half, leaving room for this run
+        boolean full = indexedSize > maxStoreBytes / 4 * 3;
+        if (full || indexedSize - HEADER_SIZE > 2 * liveBytes) {
+            compact(live, full ? maxStoreBytes / 2 : Long.MAX_VALUE);
+        } else {
+            for (Map.Entry<Key, long[]> entry : live.entrySet()) diskIndex.put(entry.getKey(), entry.getValue()[0]);
+        }
+    }
+
+    // with the lock held: moves to the store that replaced a retired one, and indexes new records
+    private void catchUp() throws IOException {
+        ByteBuffer magic = ByteBuffer.allocate(4);
+        store.read(magic, 0);
+        if (magic.getInt(0) == RETIRED) {
+            store.close();
+            store = FileChannel.open(storePath, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            loadIndex();
+            return;
+        }
+        long size = store.size();
+        if (size == indexedSize) return;
+        Map<Key, long[]> added = new LinkedHashMap<>();
+        indexedSize = scan(indexedSize, size, added);
+        for (Map.Entry<Key, long[]> entry : added.entrySet()) diskIndex.put(entry.getKey(), entry.getValue()[0]);
+    }
+
+    /**
+     * With the lock held, reads the records in [from, size) into live, where later records for a
+     * key replace earlier ones; returns where the last whole record ends.
+     */
+    private long scan(long from, long size, Map<Key, long[]> live) throws IOException {
+        long pos = from;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        while (pos + RECORD_HEADER_SIZE <= size) {
+            record.clear();
+            store.read(record, pos);
+            long end = pos + RECORD_HEADER_SIZE + record.getInt(RECORD_HEADER_SIZE - 4);
+            if (end > size) break;
+            Key key = new Key(record.getLong(0), record.getLong(8));
+            live.remove(key);
+            live.put(key, new long[] { pos, end - pos });
+            pos = end;
+        }
+        // drop a record torn by a crash mid-write
+        if (pos < size) store.truncate(pos);
+        return pos;
+    }
+
+    /**
+     * With the lock held, rewrites the store with the newest live records that fit the budget,
+     * through a temporary file that replaces it in one move, so a crash leaves either the old
+     * store or the new one. The old one is then marked retired for the processes that have it open.
+     */
+    private void compact(Map<Key, long[]> live, long budget) throws IOException {
+        List<Map.Entry<Key, long[]>> records = new ArrayList<>(live.entrySet());
+        int first = records.size();
+        long kept = HEADER_SIZE;
+        while (first > 0 && kept + records.get(first - 1).getValue()[1] <= budget) {
+            kept += records.get(--first).getValue()[1];
+        }
+        diskEvictions.add(first);
+        Path temporary = storePath.resolveSibling(storePath.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(ANALYZER_VERSION);
+            header.flip();
+            out.write(header, 0);
+            long pos = HEADER_SIZE;
+            for (int i = first; i < records.size(); i++) {
+                long[] record = records.get(i).getValue();
+                long copied = 0;
+                while (copied < record[1]) {
+                    copied += store.transferTo(record[0] + copied, record[1] - copied, out.position(pos + copied));
+                }
+                diskIndex.put(records.get(i).getKey(), pos);
+                pos += record[1];
+            }
+            out.force(true);
+            indexedSize = pos;
+        }
+        Files.move(temporary, storePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        ByteBuffer retired = ByteBuffer.allocate(4).putInt(RETIRED);
+        retired.flip();
+        store.write(retired, 0);
+        store.close();
+        store = FileChannel.open(storePath, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    // synchronized with appends, which may move to another store and index
+    private synchronized CompilationResult readRecord(Key key) throws IOException {
+        Long pos = diskIndex.get(key);
+        if (pos == null) return null;
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE);
+        store.read(record, pos);
+        byte phase = record.get(16);
+        ByteBuffer body = ByteBuffer.allocate(record.getInt(RECORD_HEADER_SIZE - 4));
+        store.read(body, pos + RECORD_HEADER_SIZE);
+        body.flip();
+        String message = getString(body);
+        return new CompilationResult(phase < 0 ? null : Phase.values()[phase], record.getLong(17),
+                phase < 0 ? null : message, record.getLong(25), record.getLong(33), getDiagnostics(body));
+    }
+
+    // kept entries, total, then phase, offset, line, column and message of each entry
+    private static Diagnostics getDiagnostics(ByteBuffer body) {
+        int size = body.getInt();
+        if (size < 0) return null;
+        long total = body.getLong();
+        Diagnostics diagnostics = new Diagnostics(Math.max(size, Diagnostics.DEFAULT_LIMIT));
+        int[] lines = new int[size];
+        int[] columns = new int[size];
+        for (int i = 0; i < size; i++) {
+            Phase phase = Phase.values()[body.get()];
+            long offset = body.getLong();
+            lines[i] = body.getInt();
+            columns[i] = body.getInt();
+            diagnostics.add(phase, offset, getString(body));
+        }
+        diagnostics.restore(lines, columns, total);
+        return diagnostics;
+    }
+
+    private static void putDiagnostics(ByteBuffer body, Diagnostics diagnostics, byte[][] messages) {
+        if (diagnostics == null) {
+            body.putInt(-1);
+            return;
+        }
+        body.putInt(diagnostics.size()).putLong(diagnostics.getTotal());
+        for (int i = 0; i < diagnostics.size(); i++) {
+            body.put((byte) diagnostics.phase(i).ordinal())
+                    .putLong(diagnostics.offset(i))
+                    .putInt(diagnostics.line(i))
+                    .putInt(diagnostics.column(i))
+                    .putInt(messages[i].length)
+                    .put(messages[i]);
+        }
+    }
+
+    private static String getString(ByteBuffer body) {
+        byte[] bytes = new byte[body.getInt()];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void writeRecord(Key key, CompilationResult result) throws IOException {
+        if (store == null) return;
+        byte[] message = result.isSuccessful() ? new byte[0] : result.getMessage().getBytes(StandardCharsets.UTF_8);
+        Diagnostics diagnostics = result.getDiagnostics();
+        int bodySize = 4 + message.length + 4;
+        byte[][] messages = null;
+        if (diagnostics != null) {
+            messages = new byte[diagnostics.size()][];
+            bodySize += 8;
+            for (int i = 0; i < messages.length; i++) {
+                messages[i] = diagnostics.message(i).getBytes(StandardCharsets.UTF_8);
+                bodySize += 1 + 8 + 4 + 4 + 4 + messages[i].length;
+            }
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bodySize);
+        record.putLong(key.hash).putLong(key.length)
+                .put((byte) (result.isSuccessful() ? -1 : result.getFailedPhase().ordinal()))
+                .putLong(result.getErrorOffset())
+                .putLong(result.getTokenCount())
+                .putLong(result.getDeclarationCount())
+                .putInt(bodySize)
+                .putInt(message.length)
+                .put(message);
+        putDiagnostics(record, diagnostics, messages);
+        record.flip();
+        synchronized (this) {
+            FileLock lock = lockFile.lock();
+            try {
+                catchUp();
+                long pos = indexedSize;
+                if (pos + record.remaining() > maxStoreBytes) {
+                    diskEvictions.increment();
+                    return;
+                }
+                while (record.hasRemaining()) {
+                    store.write(record, pos + record.position());
+                }
+                indexedSize = pos + record.limit();
+                diskIndex.put(key, pos);
+            } finally {
+                lock.release();
+            }
+        }
+    }
+
+    // 64-bit multiply-rotate hash over little-endian words, streamed a block at a time
+    static long hash(FileChannel channel) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocateDirect(READ_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        long h = 0x9e3779b97f4a7c15L;
+        long total = 0;
+        while (channel.read(buf) != -1) {
+            buf.flip();
+            while (buf.remaining() >= 8) {
+                h = mix(h, buf.getLong());
+            }
+            total += buf.position();
+            buf.compact();
+        }
+        buf.flip();
+        long tail = 0;
+        for (int i = 0; buf.hasRemaining(); i += 8) {
+            tail |= (buf.get() & 0xffL) << i;
+        }
+        h = mix(h, tail);
+        h ^= total + buf.limit();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        return h ^ (h >>> 33);
+    }
+
+    private static long mix(long h, long word) {
+        word *= 0x87c37b91114253d5L;
+        word = Long.rotateLeft(word, 31);
+        word *= 0x4cf5ad432745937fL;
+        h ^= word;
+        return Long.rotateLeft(h, 27) * 5 + 0x52dce729;
+    }
+}
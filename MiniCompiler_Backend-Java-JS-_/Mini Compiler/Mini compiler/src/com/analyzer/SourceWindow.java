@@ -0,0 +1,34 @@
+package com.analyzer;
+
+// Reusable CharSequence view over a range of the source, so tokens can be checked without copying
+class SourceWindow implements CharSequence {
+    private final CharSequence source;
+    private int start;
+    private int end;
+
+    SourceWindow(CharSequence source) {
+        this.source = source;
+    }
+
+    SourceWindow set(int start, int end) {
+        this.start = start;
+        this.end = end;
+        return this;
+    }
+
+    @Override
+    public int length() { return end - start; }
+
+    @Override
+    public char charAt(int index) { return source.charAt(start + index); }
+
+    @Override
+    public CharSequence subSequence(int from, int to) {
+        return source.subSequence(start + from, start + to);
+    }
+
+    @Override
+    public String toString() {
+        return source.subSequence(start, end).toString();
+    }
+}
@@ -0,0 +1,286 @@
+package com.analyzer;
+
+import com.model.Token;
+import com.model.TokenBuffer;
+import com.model.TokenKind;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+/**
+ * Push-style lexer that accepts the source in arbitrary chunks and hands every token to a sink
+ * as soon as it is complete. Produces exactly the same tokens as splitting the input into
+ * trimmed lines at LF, CRLF or a lone CR, but never needs the whole text in memory. Inside a
+ * literal a backslash escapes the next character, so '\'' and "a\"b" are single tokens.
+ * Operators end a word, except a sign right after the exponent 'e' of a decimal number, and
+ * ==, !=, <=, >=, && and || are single tokens; a lone & or | is an unknown token.
+ */
+public class StreamingLexer {
+    public static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final String[] OPERATORS = new String[128];
+
+    static {
+        for (char c : "+-*/%()!<>".toCharArray()) OPERATORS[c] = String.valueOf(c);
+    }
+
+    public interface TokenSink {
+        // text is only valid for the duration of the call
+        void token(TokenKind kind, CharSequence text, long start);
+    }
+
+    private final TokenSink sink;
+    private final StringBuilder pending = new StringBuilder();
+    // chars <= ' ' that would be dropped by trim() if the line ends before another visible char
+    private final StringBuilder tail = new StringBuilder();
+    private long position;
+    private long tokenStart;
+    private char quote;
+    private boolean escaped;
+    // first char of an operator that may take a second one, or 0
+    private char operator;
+    private long operatorStart;
+    private boolean inWord;
+    private boolean lineStart = true;
+
+    public StreamingLexer(TokenSink sink) {
+        this.sink = sink;
+    }
+
+    // resume lexing at an absolute position, e.g. right after a ';' in the middle of a line
+    public StreamingLexer(TokenSink sink, long position, boolean atLineStart) {
+        this.sink = sink;
+        this.position = position;
+        this.lineStart = atLineStart;
+    }
+
+    public StreamingLexer(Consumer<Token> sink) {
+        this(adapt(sink));
+    }
+
+    private static TokenSink adapt(Consumer<Token> sink) {
+        return (kind, text, start) -> sink.accept(new Token(text.toString(), kind));
+    }
+
+    public static TokenSink into(TokenBuffer buffer) {
+        return (kind, text, start) -> buffer.add(kind, (int) start, text.length());
+    }
+
+    public static void tokenize(Reader reader, TokenSink sink) throws IOException {
+        StreamingLexer lexer = new StreamingLexer(sink);
+        char[] buf = new char[CHUNK_SIZE];
+        int n;
+        while ((n = reader.read(buf)) != -1) {
+            lexer.feed(buf, 0, n);
+        }
+        lexer.finish();
+    }
+
+    public static void tokenize(Reader reader, Consumer<Token> sink) throws IOException {
+        tokenize(reader, adapt(sink));
+    }
+
+    public static void tokenize(Path path, TokenSink sink) throws IOException {
+        tokenize(path, sink, () -> false);
+    }
+
+    /**
+     * Lexes the file until the end or until stop answers true after a chunk, straight from its
+     * bytes when the platform charset allows; returns the char position reached.
+     */
+    public static long tokenize(Path path, TokenSink sink, BooleanSupplier stop) throws IOException {
+        if (ByteLexer.supports(Charset.defaultCharset())) return ByteLexer.tokenize(path, sink, stop);
+        StreamingLexer lexer = new StreamingLexer(sink);
+        try (Reader reader = openReader(path)) {
+            char[] buf = new char[CHUNK_SIZE];
+            int n;
+            while (!stop.getAsBoolean() && (n = reader.read(buf)) != -1) {
+                lexer.feed(buf, 0, n);
+            }
+        }
+        lexer.finish();
+        return lexer.getPosition();
+    }
+
+    public static Reader openReader(Path path) throws IOException {
+        return Channels.newReader(FileChannel.open(path, StandardOpenOption.READ), newDecoder(), CHUNK_SIZE);
+    }
+
+    // same lenient decoding as new String(bytes), but a chunk at a time
+    static CharsetDecoder newDecoder() {
+        return Charset.defaultCharset().newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+
+    public static void tokenize(Path path, Consumer<Token> sink) throws IOException {
+        tokenize(path, adapt(sink));
+    }
+
+    public long getPosition() { return position; }
+
+    public void feed(char[] buf, int off, int len) {
+        for (int i = off; i < off + len; i++) {
+            accept(buf[i]);
+        }
+    }
+
+    public void feed(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            accept(text.charAt(i));
+        }
+    }
+
+    public void finish() {
+        endLine();
+    }
+
+    private void accept(char c) {
+        long pos = position++;
+        // the LF of a CRLF ends an empty line
+        if (c == '\n' || c == '\r') {
+            endLine();
+            return;
+        }
+        if (c <= ' ') {
+            if (lineStart) return;
+            // plain whitespace outside a literal can't be undone by trim(), so handle it now
+            if (tail.length() == 0 && quote == 0 && Character.isWhitespace(c)) {
+                process(c, pos);
+            } else {
+                tail.append(c);
+            }
+            return;
+        }
+        lineStart = false;
+        long tailStart = pos - tail.length();
+        for (int i = 0; i < tail.length(); i++) {
+            process(tail.charAt(i), tailStart + i);
+        }
+        tail.setLength(0);
+        process(c, pos);
+    }
+
+    private void process(char c, long pos) {
+        if (operator != 0) {
+            char first = operator;
+            operator = 0;
+            if (pairs(first, c)) {
+                sink.token(TokenKind.OPERATOR, pair(first), operatorStart);
+                return;
+            }
+            emitOperator(sink, first, operatorStart);
+        }
+        if (quote != 0) {
+            pending.append(c);
+            if (escaped) {
+                escaped = false;
+            } else if (c == '\\') {
+                escaped = true;
+            } else if (c == quote) {
+                emit(TokenKind.VALUE);
+                quote = 0;
+            }
+            return;
+        }
+        if (inWord) {
+            if (!Character.isWhitespace(c) && c != '=' && c != ';' && c != '"' && c != '\''
+                    && (!isOperator(c) || isExponentSign(pending, c))) {
+                pending.append(c);
+                return;
+            }
+            endWord();
+        }
+        if (Character.isWhitespace(c)) return;
+        if (c == ';') {
+            sink.token(TokenKind.DELIMITER, ";", pos);
+        } else if (c == '=' || c == '!' || c == '<' || c == '>' || c == '&' || c == '|') {
+            // wait for the next char, which may complete a two-char operator
+            operator = c;
+            operatorStart = pos;
+        } else if (isOperator(c)) {
+            sink.token(TokenKind.OPERATOR, OPERATORS[c], pos);
+        } else if (c == '"' || c == '\'') {
+            quote = c;
+            tokenStart = pos;
+            pending.append(c);
+        } else {
+            inWord = true;
+            tokenStart = pos;
+            pending.append(c);
+        }
+    }
+
+    private void endLine() {
+        tail.setLength(0);
+        if (operator != 0) {
+            emitOperator(sink, operator, operatorStart);
+            operator = 0;
+        } else if (quote != 0) {
+            // unterminated literal runs to the end of the line
+            emit(TokenKind.VALUE);
+            quote = 0;
+            escaped = false;
+        } else if (inWord) {
+            endWord();
+        }
+        lineStart = true;
+    }
+
+    static boolean isOperator(char c) {
+        return c < 128 && (OPERATORS[c] != null || c == '&' || c == '|');
+    }
+
+    // the sign of 1e-5 or 2.5E+3, which is part of the number
+    static boolean isExponentSign(CharSequence word, char c) {
+        int last = word.length() - 1;
+        if ((c != '+' && c != '-') || last < 1 || (word.charAt(last) | 0x20) != 'e') return false;
+        char first = word.charAt(0);
+        return first >= '0' && first <= '9' && !(first == '0' && (word.charAt(1) | 0x20) == 'x');
+    }
+
+    static boolean pairs(char first, char second) {
+        if (second == '=') return first == '=' || first == '!' || first == '<' || first == '>';
+        return (first == '&' || first == '|') && second == first;
+    }
+
+    static String pair(char first) {
+        switch (first) {
+            case '=': return "==";
+            case '!': return "!=";
+            case '<': return "<=";
+            case '>': return ">=";
+            case '&': return "&&";
+            default: return "||";
+        }
+    }
+
+    // a single-char operator, '=' being the assignment
+    static void emitOperator(TokenSink sink, char c, long pos) {
+        if (c == '=') {
+            sink.token(TokenKind.ASSIGNMENT_OPERATOR, "=", pos);
+        } else if (c == '&' || c == '|') {
+            sink.token(TokenKind.UNKNOWN, c == '&' ? "&" : "|", pos);
+        } else {
+            sink.token(TokenKind.OPERATOR, OPERATORS[c], pos);
+        }
+    }
+
+    private void endWord() {
+        inWord = false;
+        emit(LexicalAnalyzer.classify(pending));
+    }
+
+    private void emit(TokenKind kind) {
+        sink.token(kind, pending, tokenStart);
+        pending.setLength(0);
+    }
+}
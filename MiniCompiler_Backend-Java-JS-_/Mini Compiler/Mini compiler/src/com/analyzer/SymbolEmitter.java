@@ -0,0 +1,61 @@
+package com.analyzer;
+
+import com.model.CompilationResult;
+import com.model.DataType;
+import com.model.PhaseMetrics;
+import com.model.SymbolArtifact;
+import com.model.SymbolArtifact.ValueKind;
+import com.model.SymbolTable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Compiles a file and, when it passes, writes its declarations as a {@link SymbolArtifact}
+ * with every initializer already folded to a constant. One pass: the tokens go to a
+ * {@link DeclarationChecker} and the value of each declaration is picked up as the checker
+ * accepts it.
+ */
+public class SymbolEmitter implements DeclarationChecker.DeclarationListener {
+    private final DeclarationChecker checker = new DeclarationChecker();
+    private final SymbolArtifact.Builder builder = new SymbolArtifact.Builder();
+
+    private SymbolEmitter() {
+        checker.setListener(this);
+    }
+
+    public static CompilationResult compile(Path source, Path artifact) throws IOException {
+        return compile(source, artifact, null);
+    }
+
+    // the artifact is only written when the result is successful; metrics may be null
+    public static CompilationResult compile(Path source, Path artifact, PhaseMetrics metrics) throws IOException {
+        SymbolEmitter emitter = new SymbolEmitter();
+        CompilationResult result = CompilerPipeline.run(source, emitter.checker, metrics);
+        if (result.isSuccessful()) emitter.builder.write(artifact);
+        return result;
+    }
+
+    @Override
+    public void declared(SymbolTable symbols, int symbol, long tokenCount) {
+        DataType type = DataType.fromCode(symbols.typeCode(symbol));
+        String name = symbols.nameString(symbol);
+        long position = symbols.position(symbol);
+        SymbolValues values = checker.getValues();
+        if (values.state(symbol) != SymbolValues.KNOWN) {
+            builder.add(name, type, position, ValueKind.NONE, 0, null);
+            return;
+        }
+        builder.add(name, type, position, valueKind(type), values.bits(symbol), values.string(symbol));
+    }
+
+    private static ValueKind valueKind(DataType type) {
+        switch (type) {
+            case FLOAT:
+            case DOUBLE: return ValueKind.REAL;
+            case BOOLEAN: return ValueKind.BOOLEAN;
+            case CHAR: return ValueKind.CHAR;
+            case STRING: return ValueKind.STRING;
+            default: return ValueKind.INTEGER;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.analyzer;
+
+import java.util.Arrays;
+
+// Folded initializer of every symbol of a SymbolTable, by symbol number
+final class SymbolValues {
+    // declared without an initializer
+    static final byte NONE = 0;
+    static final byte KNOWN = 1;
+    // the initializer had an error, so nothing that refers to it can be checked
+    static final byte FAILED = 2;
+
+    private byte[] states = new byte[64];
+    // an integer or char, 0 or 1, or the bits of a double; a float is held as a double
+    private long[] bits = new long[64];
+    private String[] strings = new String[64];
+
+    void set(int symbol, byte state, long value, String string) {
+        if (symbol >= states.length) {
+            int capacity = Math.max(symbol + 1, states.length * 2);
+            states = Arrays.copyOf(states, capacity);
+            bits = Arrays.copyOf(bits, capacity);
+            strings = Arrays.copyOf(strings, capacity);
+        }
+        states[symbol] = state;
+        bits[symbol] = value;
+        strings[symbol] = string;
+    }
+
+    byte state(int symbol) { return states[symbol]; }
+    long bits(int symbol) { return bits[symbol]; }
+    String string(int symbol) { return strings[symbol]; }
+}
@@ -1,25 +1,19 @@
 package com.analyzer;
 
+import com.model.Phase;
 import com.model.Token;
+import com.model.TokenBuffer;
 import java.util.ArrayList;
 
 public class SyntaxAnalyzer {
+    // Expect: <data_type> <identifier> [ = <expression> ] ;
+    // <expression> is values and names joined by + - * / % < <= > >= == != && ||, with
+    // prefix - + ! and parentheses
     public static boolean analyze(ArrayList<Token> tokens) {
-        int i = 0;
-        while (i < tokens.size()) {
-            // Expect: <data_type> <identifier> [ = <value> ] ;
-            if (!tokens.get(i).getType().equals("<data_type>")) return false;
-            i++;
-            if (i >= tokens.size() || !tokens.get(i).getType().equals("<identifier>")) return false;
-            i++;
-            if (i < tokens.size() && tokens.get(i).getType().equals("<assignment_operator>")) {
-                i++;
-                if (i >= tokens.size() || !tokens.get(i).getType().equals("<value>")) return false;
-                i++;
-            }
-            if (i >= tokens.size() || !tokens.get(i).getType().equals("<delimiter>")) return false;
-            i++;
-        }
-        return true;
+        return DeclarationChecker.check(tokens, Phase.SYNTAX).isSuccessful();
     }
-}
\ No newline at end of file
+
+    public static boolean analyze(TokenBuffer tokens) {
+        return DeclarationChecker.check(tokens, Phase.SYNTAX).isSuccessful();
+    }
+}
@@ -0,0 +1,69 @@
+package com.analyzer;
+
+import com.model.TokenKind;
+import java.util.Arrays;
+
+// Tokens of pending initializers, copied out of the lexer until their declaration ends
+class TokenQueue implements StreamingLexer.TokenSink {
+    private int[] kinds;
+    private long[] starts;
+    private int[] textEnds;
+    private final StringBuilder text = new StringBuilder();
+    private final SourceWindow window = new SourceWindow(text);
+    private int size;
+
+    TokenQueue(int capacity) {
+        kinds = new int[Math.max(capacity, 1)];
+        starts = new long[kinds.length];
+        textEnds = new int[kinds.length];
+    }
+
+    @Override
+    public void token(TokenKind kind, CharSequence lexeme, long start) {
+        if (size == kinds.length) {
+            int capacity = size * 2;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            textEnds = Arrays.copyOf(textEnds, capacity);
+        }
+        kinds[size] = kind.code();
+        starts[size] = start;
+        text.append(lexeme);
+        textEnds[size++] = text.length();
+    }
+
+    int size() { return size; }
+    TokenKind kind(int i) { return TokenKind.fromCode(kinds[i]); }
+    long start(int i) { return starts[i]; }
+
+    // valid until the next call
+    CharSequence text(int i) {
+        return window.set(i == 0 ? 0 : textEnds[i - 1], textEnds[i]);
+    }
+
+    char firstChar(int i) {
+        return text.charAt(i == 0 ? 0 : textEnds[i - 1]);
+    }
+
+    // the tokens from index from on, as a queue of their own
+    TokenQueue copy(int from) {
+        TokenQueue copy = new TokenQueue(size - from);
+        for (int i = from; i < size; i++) copy.token(kind(i), text(i), starts[i]);
+        return copy;
+    }
+
+    void addAll(TokenQueue other) {
+        for (int i = 0; i < other.size; i++) token(other.kind(i), other.text(i), other.starts[i]);
+    }
+
+    // drops every token from index count on
+    void truncate(int count) {
+        size = count;
+        text.setLength(count == 0 ? 0 : textEnds[count - 1]);
+    }
+
+    void clear() {
+        size = 0;
+        text.setLength(0);
+    }
+}
@@ -1,52 +1,115 @@
 const fs = require('fs');
+const http = require('http');
 const readline = require('readline');
 const LexicalAnalyzer = require('./LexicalAnalyzer');
 const SyntaxAnalyzer = require('./SyntaxAnalyzer');
 const SemanticAnalyzer = require('./SemanticAnalyzer');
 
+// the Java compile server (MiniCompiler --serve); the local analyzers are only a fallback
+const SERVER_PORT = Number(process.env.MINICOMPILER_PORT || 7878);
+
 const rl = readline.createInterface({
     input: process.stdin,
     output: process.stdout
 });
 
-function promptForFile() {
-    rl.question('Enter the path file containing Java variable declarations: ', (filePath) => {
-        try {
-            const content = fs.readFileSync(filePath, 'utf8');
-            console.log('File contents:');
-            console.log(content);
-            console.log();
-
-            const tokens = LexicalAnalyzer.tokenize(content);
+function analyzeLocally(content) {
+    const tokens = LexicalAnalyzer.tokenize(content);
+    if (!LexicalAnalyzer.isValidLexically(tokens)) return { status: 'failed', phase: 'LEXICAL' };
+    if (!SyntaxAnalyzer.analyze(tokens)) return { status: 'failed', phase: 'SYNTAX' };
+    if (!SemanticAnalyzer.analyze(tokens)) return { status: 'failed', phase: 'SEMANTIC' };
+    return { status: 'passed' };
+}
 
-            if (!LexicalAnalyzer.isValidLexically(tokens)) {
-                console.log('Lexical analysis phase FAILED! Try again, pls :)');
-                promptForFile(); // Loop back
+function analyze(content, callback) {
+    const req = http.request({
+        host: '127.0.0.1',
+        port: SERVER_PORT,
+        method: 'POST',
+        path: '/compile',
+        headers: { 'Content-Type': 'text/plain; charset=utf-8' }
+    }, (res) => {
+        let body = '';
+        res.setEncoding('utf8');
+        res.on('data', (chunk) => body += chunk);
+        res.on('end', () => {
+            let result;
+            try {
+                result = JSON.parse(body);
+            } catch (e) {
+                callback(analyzeLocally(content));
                 return;
             }
-            console.log('Lexical analysis phase PASSED :D');
-
-            if (!SyntaxAnalyzer.analyze(tokens)) {
-                console.log('SYNTAX ERROR! try again :)');
-                promptForFile(); // Loop back
+            // the server could not analyze the source, which says nothing about the source
+            if (res.statusCode < 200 || res.statusCode >= 300 || result.status === 'error') {
+                console.log('Compile server error: ' + (result.message || res.statusCode) + '; checking locally.');
+                callback(analyzeLocally(content));
                 return;
             }
-            console.log('Syntax Analysis PASSED! :D');
+            callback(result);
+        });
+    });
+    req.on('error', () => callback(analyzeLocally(content)));
+    req.end(content, 'utf8');
+}
 
-            if (!SemanticAnalyzer.analyze(tokens)) {
-                console.log('Semantic Analysis FAILED! Try again :)');
-                promptForFile(); // Loop back
-                return;
-            }
-            console.log('Semantic Analysis PASSED! :D');
-            console.log('All analyses passed! Compilation successful.');
-            rl.close();
+function report(result) {
+    if (result.status !== 'passed' && result.status !== 'failed') {
+        console.log('Analysis did not complete: ' + (result.message || 'unknown error'));
+        return false;
+    }
+    // the server lists every error; the local fallback only knows the failing phase
+    if (result.diagnostics) {
+        console.log(result.errors + ' error(s) found:');
+        for (const d of result.diagnostics) {
+            console.log(`  ${d.line}:${d.column}: ${d.phase} error: ${d.message}`);
+        }
+        console.log();
+    }
+    if (result.phase === 'LEXICAL') {
+        console.log('Lexical analysis phase FAILED! Try again, pls :)');
+        return false;
+    }
+    console.log('Lexical analysis phase PASSED :D');
+
+    if (result.phase === 'SYNTAX') {
+        console.log('SYNTAX ERROR! try again :)');
+        return false;
+    }
+    console.log('Syntax Analysis PASSED! :D');
+
+    if (result.phase === 'SEMANTIC') {
+        console.log('Semantic Analysis FAILED! Try again :)');
+        return false;
+    }
+    console.log('Semantic Analysis PASSED! :D');
+    console.log('All analyses passed! Compilation successful.');
+    return true;
+}
 
+const PROMPT = 'Enter the path file containing Java variable declarations: ';
+
+// lines are consumed through the async iterator so none are lost while a request is in flight
+async function main() {
+    process.stdout.write(PROMPT);
+    for await (const filePath of rl) {
+        let content;
+        try {
+            content = fs.readFileSync(filePath, 'utf8');
         } catch (e) {
             console.log('Error reading file. Please check the path and try again.');
-            promptForFile(); // Loop back
+            process.stdout.write(PROMPT); // Loop back
+            continue;
         }
-    });
+        console.log('File contents:');
+        console.log(content);
+        console.log();
+
+        const result = await new Promise((resolve) => analyze(content, resolve));
+        if (report(result)) break;
+        process.stdout.write(PROMPT); // Loop back
+    }
+    rl.close();
 }
 
-promptForFile();
+main();
@@ -0,0 +1,65 @@
+package com.model;
+
+/**
+ * One item of a streamed analysis: a token, a declaration that passed every check, an error,
+ * or the result that ends the stream. Offsets are char offsets from the start of the input.
+ */
+public class AnalysisEvent {
+    public enum Type {
+        TOKEN,
+        DECLARATION,
+        DIAGNOSTIC,
+        // always the last event
+        RESULT
+    }
+
+    private final Type type;
+    private final long offset;
+    private final String text;
+    private final TokenKind tokenKind;
+    private final DataType dataType;
+    private final String value;
+    private final Phase phase;
+    private final CompilationResult result;
+
+    private AnalysisEvent(Type type, long offset, String text, TokenKind tokenKind, DataType dataType,
+                          String value, Phase phase, CompilationResult result) {
+        this.type = type;
+        this.offset = offset;
+        this.text = text;
+        this.tokenKind = tokenKind;
+        this.dataType = dataType;
+        this.value = value;
+        this.phase = phase;
+        this.result = result;
+    }
+
+    public static AnalysisEvent token(TokenKind kind, String lexeme, long offset) {
+        return new AnalysisEvent(Type.TOKEN, offset, lexeme, kind, null, null, null, null);
+    }
+
+    // value is the folded initializer as a literal of the type, or null when there is none
+    public static AnalysisEvent declaration(DataType type, String name, long offset, String value) {
+        return new AnalysisEvent(Type.DECLARATION, offset, name, null, type, value, null, null);
+    }
+
+    public static AnalysisEvent diagnostic(Phase phase, long offset, String message) {
+        return new AnalysisEvent(Type.DIAGNOSTIC, offset, message, null, null, null, phase, null);
+    }
+
+    public static AnalysisEvent result(CompilationResult result) {
+        return new AnalysisEvent(Type.RESULT, result.getErrorOffset(), result.getMessage(),
+                null, null, null, result.getFailedPhase(), result);
+    }
+
+    public Type getType() { return type; }
+    // start of the token or the declared name, or where the error is; -1 when unknown
+    public long getOffset() { return offset; }
+    // the lexeme, the declared name or the error message
+    public String getText() { return text; }
+    public TokenKind getTokenKind() { return tokenKind; }
+    public DataType getDataType() { return dataType; }
+    public String getValue() { return value; }
+    public Phase getPhase() { return phase; }
+    public CompilationResult getResult() { return result; }
+}
@@ -0,0 +1,34 @@
+package com.model;
+
+public class CompilationResult {
+    private final Phase failedPhase;
+    private final long errorOffset;
+    private final String message;
+    private final long tokenCount;
+    private final long declarationCount;
+    private final Diagnostics diagnostics;
+
+    public CompilationResult(Phase failedPhase, long errorOffset, String message,
+                             long tokenCount, long declarationCount) {
+        this(failedPhase, errorOffset, message, tokenCount, declarationCount, null);
+    }
+
+    // diagnostics is null unless every error was collected
+    public CompilationResult(Phase failedPhase, long errorOffset, String message,
+                             long tokenCount, long declarationCount, Diagnostics diagnostics) {
+        this.failedPhase = failedPhase;
+        this.errorOffset = errorOffset;
+        this.message = message;
+        this.tokenCount = tokenCount;
+        this.declarationCount = declarationCount;
+        this.diagnostics = diagnostics;
+    }
+
+    public boolean isSuccessful() { return failedPhase == null; }
+    public Phase getFailedPhase() { return failedPhase; }
+    public long getErrorOffset() { return errorOffset; }
+    public String getMessage() { return message; }
+    public long getTokenCount() { return tokenCount; }
+    public long getDeclarationCount() { return declarationCount; }
+    public Diagnostics getDiagnostics() { return diagnostics; }
+}
@@ -0,0 +1,29 @@
+package com.model;
+
+public enum DataType {
+    INT("int"),
+    FLOAT("float"),
+    DOUBLE("double"),
+    CHAR("char"),
+    BOOLEAN("boolean"),
+    STRING("String"),
+    LONG("long"),
+    SHORT("short"),
+    BYTE("byte");
+
+    private static final DataType[] CODES = values();
+
+    private final String keyword;
+
+    DataType(String keyword) {
+        this.keyword = keyword;
+    }
+
+    public String getKeyword() { return keyword; }
+
+    public int code() { return ordinal(); }
+
+    public static DataType fromCode(int code) {
+        return CODES[code];
+    }
+}
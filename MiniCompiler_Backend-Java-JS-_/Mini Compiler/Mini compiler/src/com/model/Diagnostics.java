@@ -0,0 +1,224 @@
+package com.model;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Error list of one compilation. Each entry keeps its phase, message and source offset; line
+ * and column are only worked out, in one pass over the source, when the list is reported.
+ * Entries past the limit are counted but not kept.
+ */
+public class Diagnostics {
+    public static final int DEFAULT_LIMIT = 1000;
+
+    private final int limit;
+    private Phase[] phases = new Phase[16];
+    private long[] offsets = new long[16];
+    private String[] messages = new String[16];
+    private int[] lines;
+    private int[] columns;
+    private int size;
+    private long total;
+
+    public Diagnostics() {
+        this(DEFAULT_LIMIT);
+    }
+
+    public Diagnostics(int limit) {
+        this.limit = limit;
+    }
+
+    public void add(Phase phase, long offset, String message) {
+        total++;
+        if (size == limit) return;
+        if (size == phases.length) {
+            int capacity = Math.min(size * 2, limit);
+            phases = Arrays.copyOf(phases, capacity);
+            offsets = Arrays.copyOf(offsets, capacity);
+            messages = Arrays.copyOf(messages, capacity);
+        }
+        phases[size] = phase;
+        offsets[size] = offset;
+        messages[size] = message;
+        size++;
+        lines = null;
+    }
+
+    // an independent copy, positions included
+    public Diagnostics copy() {
+        Diagnostics copy = new Diagnostics(limit);
+        copy.phases = Arrays.copyOf(phases, phases.length);
+        copy.offsets = Arrays.copyOf(offsets, offsets.length);
+        copy.messages = Arrays.copyOf(messages, messages.length);
+        copy.lines = lines == null ? null : lines.clone();
+        copy.columns = columns == null ? null : columns.clone();
+        copy.size = size;
+        copy.total = total;
+        return copy;
+    }
+
+    /**
+     * Sets the position of every entry and the total including dropped entries at once, for
+     * a list read back from a store.
+     */
+    public void restore(int[] lines, int[] columns, long total) {
+        this.lines = Arrays.copyOf(lines, size);
+        this.columns = Arrays.copyOf(columns, size);
+        this.total = Math.max(total, size);
+    }
+
+    // number of entries kept
+    public int size() { return size; }
+    // number of entries reported, including those past the limit
+    public long getTotal() { return total; }
+    public boolean isEmpty() { return total == 0; }
+
+    public Phase phase(int i) { return phases[i]; }
+    public long offset(int i) { return offsets[i]; }
+    public String message(int i) { return messages[i]; }
+
+    // 1-based; 0 until resolvePositions() ran or when the offset is unknown
+    public int line(int i) { return lines == null ? 0 : lines[i]; }
+    public int column(int i) { return columns == null ? 0 : columns[i]; }
+
+    // forgets everything reported after the first count entries
+    public void truncate(long count) {
+        if (count < size) {
+            Arrays.fill(messages, (int) count, size, null);
+            size = (int) count;
+        }
+        total = count;
+        lines = null;
+    }
+
+    public long count(Phase phase) {
+        long n = 0;
+        for (int i = 0; i < size; i++) {
+            if (phases[i] == phase) n++;
+        }
+        return n;
+    }
+
+    // orders entries by source offset; entries at the same offset keep their order
+    public void sort() {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        Arrays.sort(order, (a, b) -> Long.compare(offsets[a], offsets[b]));
+        Phase[] p = new Phase[phases.length];
+        long[] o = new long[offsets.length];
+        String[] m = new String[messages.length];
+        for (int i = 0; i < size; i++) {
+            p[i] = phases[order[i]];
+            o[i] = offsets[order[i]];
+            m[i] = messages[order[i]];
+        }
+        phases = p;
+        offsets = o;
+        messages = m;
+        lines = null;
+    }
+
+    /**
+     * Sorts the entries and sets line and column from the source they were reported against;
+     * lines end at LF, CRLF or a lone CR, as in the lexer.
+     */
+    public void resolvePositions(CharSequence source) {
+        sort();
+        int[] l = new int[size];
+        int[] c = new int[size];
+        int line = 1;
+        long lineStart = 0;
+        int next = skipUnknown(l, c);
+        char previous = 0;
+        for (int pos = 0; pos < source.length() && next < size; pos++) {
+            while (next < size && offsets[next] == pos) {
+                l[next] = line;
+                c[next++] = (int) (pos - lineStart) + 1;
+            }
+            char ch = source.charAt(pos);
+            if (ch == '\r' || (ch == '\n' && previous != '\r')) line++;
+            if (ch == '\r' || ch == '\n') lineStart = pos + 1;
+            previous = ch;
+        }
+        finishResolve(l, c, next, line, source.length() - lineStart);
+    }
+
+    /** Like {@link #resolvePositions(CharSequence)}, streaming the source from a reader. */
+    public void resolvePositions(Reader source) throws IOException {
+        sort();
+        int[] l = new int[size];
+        int[] c = new int[size];
+        int line = 1;
+        long lineStart = 0;
+        long pos = 0;
+        int next = skipUnknown(l, c);
+        char[] buf = new char[64 * 1024];
+        char previous = 0;
+        int n;
+        while (next < size && (n = source.read(buf)) != -1) {
+            for (int i = 0; i < n && next < size; i++, pos++) {
+                while (next < size && offsets[next] == pos) {
+                    l[next] = line;
+                    c[next++] = (int) (pos - lineStart) + 1;
+                }
+                char ch = buf[i];
+                if (ch == '\r' || (ch == '\n' && previous != '\r')) line++;
+                if (ch == '\r' || ch == '\n') lineStart = pos + 1;
+                previous = ch;
+            }
+        }
+        finishResolve(l, c, next, line, pos - lineStart);
+    }
+
+    /**
+     * Sets line and column from the lengths of the source's lines, without '\n'; for callers
+     * that keep the source as lines.
+     */
+    public void resolvePositions(int[] lineLengths, int lineCount) {
+        sort();
+        int[] l = new int[size];
+        int[] c = new int[size];
+        int next = skipUnknown(l, c);
+        long lineStart = 0;
+        for (int line = 0; line < lineCount && next < size; line++) {
+            long lineEnd = lineStart + lineLengths[line];
+            while (next < size && offsets[next] <= lineEnd) {
+                l[next] = line + 1;
+                c[next] = (int) (offsets[next] - lineStart) + 1;
+                next++;
+            }
+            lineStart = lineEnd + 1;
+        }
+        for (; next < size; next++) {
+            l[next] = lineCount;
+            c[next] = 1;
+        }
+        lines = l;
+        columns = c;
+    }
+
+    // "line:column: Phase error: message"
+    public String format(int i) {
+        StringBuilder out = new StringBuilder();
+        if (line(i) > 0) out.append(line(i)).append(':').append(column(i)).append(": ");
+        return out.append(phases[i].getDisplayName()).append(" error: ").append(messages[i]).toString();
+    }
+
+    // entries with no known offset sort first and have no position
+    private int skipUnknown(int[] l, int[] c) {
+        int next = 0;
+        while (next < size && offsets[next] < 0) next++;
+        return next;
+    }
+
+    // offsets at or past the end, such as "Unexpected end of input", go to the end of the last line
+    private void finishResolve(int[] l, int[] c, int next, int line, long column) {
+        for (; next < size; next++) {
+            l[next] = line;
+            c[next] = (int) column + 1;
+        }
+        lines = l;
+        columns = c;
+    }
+}
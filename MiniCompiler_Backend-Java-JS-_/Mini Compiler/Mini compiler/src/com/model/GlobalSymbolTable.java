@@ -0,0 +1,155 @@
+package com.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Symbol table shared by the files of a project while they are analyzed on many threads. Names
+ * are spread over lock stripes, each a {@link SymbolTable} of its own, so threads declaring
+ * different names rarely wait for each other. Of all declarations of a name, the one first in
+ * file order and then in source order owns it, whatever order the threads arrive in; every
+ * other one is a duplicate of it.
+ */
+public class GlobalSymbolTable {
+    public static final int DEFAULT_STRIPES = 64;
+
+    // a declaration of a name that another file, or an earlier spot, declared first
+    public static class Duplicate {
+        private final String name;
+        private final int file;
+        private final long position;
+        private final int firstFile;
+        private final long firstPosition;
+
+        Duplicate(String name, int file, long position, int firstFile, long firstPosition) {
+            this.name = name;
+            this.file = file;
+            this.position = position;
+            this.firstFile = firstFile;
+            this.firstPosition = firstPosition;
+        }
+
+        public String getName() { return name; }
+        public int getFile() { return file; }
+        public long getPosition() { return position; }
+        public int getFirstFile() { return firstFile; }
+        public long getFirstPosition() { return firstPosition; }
+    }
+
+    private final Stripe[] stripes;
+
+    public GlobalSymbolTable() {
+        this(DEFAULT_STRIPES);
+    }
+
+    public GlobalSymbolTable(int stripeCount) {
+        stripes = new Stripe[Integer.highestOneBit(Math.max(stripeCount, 1) * 2 - 1)];
+        for (int i = 0; i < stripes.length; i++) stripes[i] = new Stripe();
+    }
+
+    // file is the index of the declaring file in the project's file order
+    public void declare(CharSequence name, int typeCode, int file, long position) {
+        Stripe stripe = stripe(name);
+        synchronized (stripe) {
+            stripe.declare(name, typeCode, file, position);
+        }
+    }
+
+    // type code of the owning declaration, or -1 when the name is not declared
+    public int typeCode(CharSequence name) {
+        Stripe stripe = stripe(name);
+        synchronized (stripe) {
+            int symbol = stripe.table.lookup(name);
+            return symbol < 0 ? -1 : stripe.ownerTypes[symbol];
+        }
+    }
+
+    // number of distinct names
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.table.size();
+            }
+        }
+        return size;
+    }
+
+    /** Every declaration that does not own its name, in file and then source order. */
+    public List<Duplicate> duplicates() {
+        List<Duplicate> duplicates = new ArrayList<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                for (int i = 0; i < stripe.lostCount; i++) {
+                    int symbol = stripe.lostSymbols[i];
+                    duplicates.add(new Duplicate(stripe.table.nameString(symbol), stripe.lostFiles[i],
+                            stripe.lostPositions[i], stripe.ownerFiles[symbol], stripe.ownerPositions[symbol]));
+                }
+            }
+        }
+        duplicates.sort(Comparator.comparingInt(Duplicate::getFile).thenComparingLong(Duplicate::getPosition));
+        return duplicates;
+    }
+
+    private Stripe stripe(CharSequence name) {
+        int h = 0;
+        for (int i = 0; i < name.length(); i++) {
+            h = 31 * h + name.charAt(i);
+        }
+        h *= 0x9e3779b9;
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
+    private static class Stripe {
+        private final SymbolTable table = new SymbolTable();
+        // per symbol: where the declaration that owns the name is
+        private int[] ownerFiles = new int[16];
+        private long[] ownerPositions = new long[16];
+        private int[] ownerTypes = new int[16];
+        // declarations that lost their name to another
+        private int[] lostSymbols = new int[16];
+        private int[] lostFiles = new int[16];
+        private long[] lostPositions = new long[16];
+        private int lostCount;
+
+        void declare(CharSequence name, int typeCode, int file, long position) {
+            int symbol = table.containsOrInsert(name, typeCode, position);
+            if (symbol < 0) {
+                symbol = table.size() - 1;
+                if (symbol == ownerFiles.length) {
+                    ownerFiles = Arrays.copyOf(ownerFiles, symbol * 2);
+                    ownerPositions = Arrays.copyOf(ownerPositions, symbol * 2);
+                    ownerTypes = Arrays.copyOf(ownerTypes, symbol * 2);
+                }
+                own(symbol, typeCode, file, position);
+                return;
+            }
+            if (file < ownerFiles[symbol] || (file == ownerFiles[symbol] && position < ownerPositions[symbol])) {
+                lose(symbol, ownerFiles[symbol], ownerPositions[symbol]);
+                own(symbol, typeCode, file, position);
+            } else {
+                lose(symbol, file, position);
+            }
+        }
+
+        private void own(int symbol, int typeCode, int file, long position) {
+            ownerFiles[symbol] = file;
+            ownerPositions[symbol] = position;
+            ownerTypes[symbol] = typeCode;
+        }
+
+        private void lose(int symbol, int file, long position) {
+            if (lostCount == lostSymbols.length) {
+                lostSymbols = Arrays.copyOf(lostSymbols, lostCount * 2);
+                lostFiles = Arrays.copyOf(lostFiles, lostCount * 2);
+                lostPositions = Arrays.copyOf(lostPositions, lostCount * 2);
+            }
+            lostSymbols[lostCount] = symbol;
+            lostFiles[lostCount] = file;
+            lostPositions[lostCount] = position;
+            lostCount++;
+        }
+    }
+}
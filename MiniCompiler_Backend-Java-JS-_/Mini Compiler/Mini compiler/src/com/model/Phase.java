@@ -0,0 +1,15 @@
+package com.model;
+
+public enum Phase {
+    LEXICAL("Lexical"),
+    SYNTAX("Syntax"),
+    SEMANTIC("Semantic");
+
+    private final String displayName;
+
+    Phase(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() { return displayName; }
+}
@@ -0,0 +1,98 @@
+package com.model;
+
+import java.util.Locale;
+
+/**
+ * Per-phase totals for one or more compilations: wall time, tokens and declarations handled,
+ * characters of input covered and bytes allocated. The fused pass runs the three phases
+ * interleaved token by token, so it counts per phase but can only be timed as a whole; its
+ * time and allocation are kept apart as the fused figures. Not thread-safe.
+ */
+public class PhaseMetrics {
+    private static final Phase[] PHASES = Phase.values();
+
+    private final long[] nanos = new long[PHASES.length];
+    private final long[] tokens = new long[PHASES.length];
+    private final long[] declarations = new long[PHASES.length];
+    private final long[] chars = new long[PHASES.length];
+    private final long[] allocatedBytes = new long[PHASES.length];
+    private long fusedNanos;
+    private long fusedAllocatedBytes;
+
+    public void record(Phase phase, long nanos, long tokens, long declarations, long chars, long allocatedBytes) {
+        int i = phase.ordinal();
+        this.nanos[i] += nanos;
+        this.tokens[i] += tokens;
+        this.declarations[i] += declarations;
+        this.chars[i] += chars;
+        this.allocatedBytes[i] += allocatedBytes;
+    }
+
+    // time and allocation of phases that ran together in one pass
+    public void recordFused(long nanos, long allocatedBytes) {
+        fusedNanos += nanos;
+        fusedAllocatedBytes += allocatedBytes;
+    }
+
+    public void add(PhaseMetrics other) {
+        for (Phase phase : PHASES) {
+            int i = phase.ordinal();
+            record(phase, other.nanos[i], other.tokens[i], other.declarations[i], other.chars[i], other.allocatedBytes[i]);
+        }
+        recordFused(other.fusedNanos, other.fusedAllocatedBytes);
+    }
+
+    public long getNanos(Phase phase) { return nanos[phase.ordinal()]; }
+    public long getTokens(Phase phase) { return tokens[phase.ordinal()]; }
+    public long getDeclarations(Phase phase) { return declarations[phase.ordinal()]; }
+    public long getChars(Phase phase) { return chars[phase.ordinal()]; }
+    public long getAllocatedBytes(Phase phase) { return allocatedBytes[phase.ordinal()]; }
+    public long getFusedNanos() { return fusedNanos; }
+    public long getFusedAllocatedBytes() { return fusedAllocatedBytes; }
+
+    public long getTotalNanos() {
+        long total = fusedNanos;
+        for (long n : nanos) total += n;
+        return total;
+    }
+
+    // one line per phase, for terminals
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.ROOT, "%-9s %10s %12s %12s %12s %14s %12s%n",
+                "Phase", "ms", "tokens", "tokens/s", "decls", "chars", "alloc bytes"));
+        for (Phase phase : PHASES) {
+            int i = phase.ordinal();
+            // untimed phases of a fused pass only show their counts
+            boolean timed = nanos[i] > 0 || fusedNanos == 0;
+            out.append(String.format(Locale.ROOT, "%-9s %10s %12d %12s %12d %14d %12s%n",
+                    phase.getDisplayName(), timed ? String.format(Locale.ROOT, "%.3f", nanos[i] / 1e6) : "-",
+                    tokens[i], timed ? String.format(Locale.ROOT, "%.0f", nanos[i] == 0 ? 0.0 : tokens[i] * 1e9 / nanos[i]) : "-",
+                    declarations[i], chars[i], timed ? Long.toString(allocatedBytes[i]) : "-"));
+        }
+        if (fusedNanos > 0) {
+            int lexical = Phase.LEXICAL.ordinal();
+            out.append(String.format(Locale.ROOT, "%-9s %10.3f %12d %12.0f %12d %14d %12d%n",
+                    "Fused", fusedNanos / 1e6, tokens[lexical], tokens[lexical] * 1e9 / fusedNanos,
+                    declarations[Phase.SEMANTIC.ordinal()], chars[lexical], fusedAllocatedBytes));
+        }
+        return out.toString();
+    }
+
+    // compact form for a status bar
+    public String summary() {
+        StringBuilder out = new StringBuilder();
+        for (Phase phase : PHASES) {
+            // a fused pass leaves the phases untimed
+            if (fusedNanos > 0 && nanos[phase.ordinal()] == 0) continue;
+            if (out.length() > 0) out.append("  |  ");
+            out.append(phase.getDisplayName()).append(' ')
+                    .append(String.format(Locale.ROOT, "%.1f ms", nanos[phase.ordinal()] / 1e6));
+        }
+        if (fusedNanos > 0) {
+            if (out.length() > 0) out.append("  |  ");
+            out.append(String.format(Locale.ROOT, "All phases %.1f ms", fusedNanos / 1e6));
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,241 @@
+package com.model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Read-only view of a compiled symbol table file, memory-mapped so that opening it costs no
+ * parsing and a lookup is one hash probe. Safe to share between threads.
+ *
+ * Layout, big-endian, all offsets from the start of the file:
+ *   header   magic, version, symbols, slots, index offset, entries offset, strings offset,
+ *            strings length (8 ints)
+ *   index    one int per slot: symbol number + 1, or 0 when empty; slots is a power of two
+ *            and at least twice the symbol count, probed linearly from hash & (slots - 1)
+ *   entries  32 bytes per symbol, in declaration order: name hash, name offset, name length,
+ *            type code, value kind, 2 unused bytes, value, source offset
+ *   strings  the UTF-8 bytes of every name and string value
+ *
+ * The value slot holds a long, the bits of a double, 0 or 1, a char, or for strings the
+ * offset (high half) and length (low half) of the UTF-8 bytes in the string table.
+ */
+public class SymbolArtifact {
+    public static final int MAGIC = 0x4d435354; // "MCST"
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 8 * 4;
+    private static final int ENTRY_SIZE = 32;
+
+    public enum ValueKind {
+        // declared without an initializer
+        NONE,
+        INTEGER,
+        REAL,
+        BOOLEAN,
+        CHAR,
+        // string literals, as written between the quotes
+        STRING;
+
+        private static final ValueKind[] CODES = values();
+    }
+
+    private final ByteBuffer buffer;
+    private final int size;
+    private final int slotMask;
+    private final int indexOffset;
+    private final int entriesOffset;
+
+    private SymbolArtifact(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a symbol table file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported symbol table version " + buffer.getInt(4));
+        }
+        size = buffer.getInt(8);
+        int slots = buffer.getInt(12);
+        indexOffset = buffer.getInt(16);
+        entriesOffset = buffer.getInt(20);
+        long end = (long) buffer.getInt(24) + buffer.getInt(28);
+        if (size < 0 || Integer.bitCount(slots) != 1 || slots < size * 2L
+                || indexOffset + slots * 4L > entriesOffset || entriesOffset + (long) size * ENTRY_SIZE > end
+                || end > buffer.capacity()) {
+            throw new IOException("Corrupt symbol table file");
+        }
+        slotMask = slots - 1;
+    }
+
+    public static SymbolArtifact open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new SymbolArtifact(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public int size() { return size; }
+
+    // symbol number of the variable, or -1
+    public int lookup(CharSequence name) {
+        int hash = hash(name);
+        for (int slot = hash & slotMask; ; slot = (slot + 1) & slotMask) {
+            int entry = buffer.getInt(indexOffset + slot * 4);
+            if (entry == 0) return -1;
+            int at = entry(entry - 1);
+            if (buffer.getInt(at) == hash && nameEquals(at, name)) return entry - 1;
+        }
+    }
+
+    public String name(int symbol) {
+        int at = entry(symbol);
+        return string(buffer.getInt(at + 4), buffer.getInt(at + 8));
+    }
+
+    public DataType type(int symbol) { return DataType.fromCode(buffer.get(entry(symbol) + 12)); }
+    public ValueKind valueKind(int symbol) { return ValueKind.CODES[buffer.get(entry(symbol) + 13)]; }
+    public long position(int symbol) { return buffer.getLong(entry(symbol) + 24); }
+
+    public long longValue(int symbol) { return value(symbol, ValueKind.INTEGER); }
+    public double doubleValue(int symbol) { return Double.longBitsToDouble(value(symbol, ValueKind.REAL)); }
+    public boolean booleanValue(int symbol) { return value(symbol, ValueKind.BOOLEAN) != 0; }
+    public char charValue(int symbol) { return (char) value(symbol, ValueKind.CHAR); }
+
+    public String stringValue(int symbol) {
+        long value = value(symbol, ValueKind.STRING);
+        return string((int) (value >>> 32), (int) value);
+    }
+
+    private long value(int symbol, ValueKind kind) {
+        if (valueKind(symbol) != kind) {
+            throw new IllegalStateException(name(symbol) + " has no " + kind.name().toLowerCase(Locale.ROOT) + " value");
+        }
+        return buffer.getLong(entry(symbol) + 16);
+    }
+
+    private int entry(int symbol) {
+        if (symbol < 0 || symbol >= size) throw new IndexOutOfBoundsException(symbol);
+        return entriesOffset + symbol * ENTRY_SIZE;
+    }
+
+    private String string(int offset, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // names are ASCII identifiers, so a byte compares with a char directly
+    private boolean nameEquals(int at, CharSequence name) {
+        int length = buffer.getInt(at + 8);
+        if (length != name.length()) return false;
+        int offset = buffer.getInt(at + 4);
+        for (int i = 0; i < length; i++) {
+            if (buffer.get(offset + i) != name.charAt(i)) return false;
+        }
+        return true;
+    }
+
+    // part of the file format: changing it needs a new VERSION
+    static int hash(CharSequence name) {
+        int h = 0x811c9dc5;
+        for (int i = 0; i < name.length(); i++) {
+            h = (h ^ name.charAt(i)) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /** Collects symbols in declaration order and writes them as one file. */
+    public static class Builder {
+        private String[] names = new String[16];
+        private byte[] types = new byte[16];
+        private byte[] kinds = new byte[16];
+        private long[] values = new long[16];
+        private long[] positions = new long[16];
+        private String[] strings = new String[16];
+        private int size;
+
+        public Builder add(String name, DataType type, long position, ValueKind kind, long value, String string) {
+            if (size == names.length) {
+                int capacity = size * 2;
+                names = Arrays.copyOf(names, capacity);
+                types = Arrays.copyOf(types, capacity);
+                kinds = Arrays.copyOf(kinds, capacity);
+                values = Arrays.copyOf(values, capacity);
+                positions = Arrays.copyOf(positions, capacity);
+                strings = Arrays.copyOf(strings, capacity);
+            }
+            names[size] = name;
+            types[size] = (byte) type.code();
+            kinds[size] = (byte) kind.ordinal();
+            values[size] = value;
+            positions[size] = position;
+            strings[size] = string;
+            size++;
+            return this;
+        }
+
+        /** Writes to a temporary file next to path and moves it into place, so readers never see half a file. */
+        public void write(Path path) throws IOException {
+            byte[][] nameBytes = new byte[size][];
+            byte[][] stringBytes = new byte[size][];
+            long stringsLength = 0;
+            for (int i = 0; i < size; i++) {
+                nameBytes[i] = names[i].getBytes(StandardCharsets.UTF_8);
+                stringsLength += nameBytes[i].length;
+                if (strings[i] != null) {
+                    stringBytes[i] = strings[i].getBytes(StandardCharsets.UTF_8);
+                    stringsLength += stringBytes[i].length;
+                }
+            }
+            int slots = Integer.highestOneBit(Math.max(size, 2) * 2 - 1) << 1;
+            long indexOffset = HEADER_SIZE;
+            long entriesOffset = indexOffset + slots * 4L;
+            long stringsOffset = entriesOffset + (long) size * ENTRY_SIZE;
+            if (stringsOffset + stringsLength > Integer.MAX_VALUE) {
+                throw new IOException("Symbol table too large for one file");
+            }
+            ByteBuffer out = ByteBuffer.allocate((int) (stringsOffset + stringsLength));
+            out.putInt(MAGIC).putInt(VERSION).putInt(size).putInt(slots)
+                    .putInt((int) indexOffset).putInt((int) entriesOffset)
+                    .putInt((int) stringsOffset).putInt((int) stringsLength);
+            int mask = slots - 1;
+            int next = (int) stringsOffset;
+            for (int i = 0; i < size; i++) {
+                int hash = hash(names[i]);
+                int slot = hash & mask;
+                while (out.getInt((int) indexOffset + slot * 4) != 0) slot = (slot + 1) & mask;
+                out.putInt((int) indexOffset + slot * 4, i + 1);
+
+                int at = (int) entriesOffset + i * ENTRY_SIZE;
+                out.position(next);
+                out.put(nameBytes[i]);
+                out.putInt(at, hash).putInt(at + 4, next).putInt(at + 8, nameBytes[i].length);
+                next += nameBytes[i].length;
+                long value = values[i];
+                if (stringBytes[i] != null) {
+                    out.put(stringBytes[i]);
+                    value = (long) next << 32 | stringBytes[i].length;
+                    next += stringBytes[i].length;
+                }
+                out.put(at + 12, types[i]).put(at + 13, kinds[i]).putLong(at + 16, value).putLong(at + 24, positions[i]);
+            }
+            out.clear();
+            Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                    while (out.hasRemaining()) channel.write(out);
+                }
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.model;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * Open-addressing symbol table. Identifier characters are stored once in a shared char arena;
+ * each symbol has an int type code and the source offset of its declaration. Symbols are
+ * numbered 0..size()-1 in insertion order.
+ */
+public class SymbolTable {
+    private static final int NOT_FOUND = -1;
+
+    private char[] arena;
+    private int arenaSize;
+    private int[] nameStarts;
+    private int[] nameLengths;
+    private int[] hashes;
+    private int[] typeCodes;
+    private long[] positions;
+    private int size;
+    // slot -> symbol index + 1, 0 when empty
+    private int[] slots;
+
+    public SymbolTable() {
+        this(16);
+    }
+
+    public SymbolTable(int expectedSymbols) {
+        int capacity = Math.max(expectedSymbols, 4);
+        arena = new char[capacity * 8];
+        nameStarts = new int[capacity];
+        nameLengths = new int[capacity];
+        hashes = new int[capacity];
+        typeCodes = new int[capacity];
+        positions = new long[capacity];
+        slots = new int[Integer.highestOneBit(capacity * 2 - 1) << 1];
+    }
+
+    public int size() { return size; }
+
+    public int lookup(CharSequence name) {
+        return lookup(name, 0, name.length());
+    }
+
+    public int lookup(CharSequence text, int start, int end) {
+        int hash = hash(text, start, end);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) return NOT_FOUND;
+            if (hashes[entry - 1] == hash && nameEquals(entry - 1, text, start, end)) return entry - 1;
+        }
+    }
+
+    public boolean contains(CharSequence name) {
+        return lookup(name) != NOT_FOUND;
+    }
+
+    /**
+     * Returns the index of the existing symbol with this name, or inserts a new symbol and
+     * returns -1. The new symbol's index is then {@code size() - 1}.
+     */
+    public int containsOrInsert(CharSequence text, int start, int end, int typeCode, long position) {
+        int hash = hash(text, start, end);
+        int mask = slots.length - 1;
+        int slot = hash & mask;
+        for (; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == 0) break;
+            if (hashes[entry - 1] == hash && nameEquals(entry - 1, text, start, end)) return entry - 1;
+        }
+        int symbol = append(text, start, end, hash, typeCode, position);
+        slots[slot] = symbol + 1;
+        // keep the load factor at or below one half
+        if (size * 2 > slots.length) rehash(slots.length << 1);
+        return NOT_FOUND;
+    }
+
+    public int containsOrInsert(CharSequence name, int typeCode, long position) {
+        return containsOrInsert(name, 0, name.length(), typeCode, position);
+    }
+
+    // drops the most recently inserted symbols so that only the first count remain
+    public void truncate(int count) {
+        while (size > count) {
+            int symbol = --size;
+            int mask = slots.length - 1;
+            int slot = hashes[symbol] & mask;
+            while (slots[slot] != symbol + 1) slot = (slot + 1) & mask;
+            removeSlot(slot);
+            arenaSize = nameStarts[symbol];
+        }
+    }
+
+    public int typeCode(int symbol) { return typeCodes[symbol]; }
+    public long position(int symbol) { return positions[symbol]; }
+
+    public CharSequence name(int symbol) {
+        return CharBuffer.wrap(arena, nameStarts[symbol], nameLengths[symbol]);
+    }
+
+    public String nameString(int symbol) {
+        return new String(arena, nameStarts[symbol], nameLengths[symbol]);
+    }
+
+    private int append(CharSequence text, int start, int end, int hash, int typeCode, long position) {
+        int length = end - start;
+        if (size == nameStarts.length) {
+            int capacity = size * 2;
+            nameStarts = Arrays.copyOf(nameStarts, capacity);
+            nameLengths = Arrays.copyOf(nameLengths, capacity);
+            hashes = Arrays.copyOf(hashes, capacity);
+            typeCodes = Arrays.copyOf(typeCodes, capacity);
+            positions = Arrays.copyOf(positions, capacity);
+        }
+        if (arenaSize + length > arena.length) {
+            arena = Arrays.copyOf(arena, Math.max(arena.length * 2, arenaSize + length));
+        }
+        for (int i = start; i < end; i++) {
+            arena[arenaSize++] = text.charAt(i);
+        }
+        nameStarts[size] = arenaSize - length;
+        nameLengths[size] = length;
+        hashes[size] = hash;
+        typeCodes[size] = typeCode;
+        positions[size] = position;
+        return size++;
+    }
+
+    private void rehash(int capacity) {
+        int[] table = new int[capacity];
+        int mask = capacity - 1;
+        for (int symbol = 0; symbol < size; symbol++) {
+            int slot = hashes[symbol] & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = symbol + 1;
+        }
+        slots = table;
+    }
+
+    // backward-shift deletion keeps every probe chain unbroken
+    private void removeSlot(int hole) {
+        int mask = slots.length - 1;
+        int j = hole;
+        while (true) {
+            j = (j + 1) & mask;
+            if (slots[j] == 0) break;
+            int home = hashes[slots[j] - 1] & mask;
+            boolean stays = hole <= j ? (hole < home && home <= j) : (hole < home || home <= j);
+            if (stays) continue;
+            slots[hole] = slots[j];
+            hole = j;
+        }
+        slots[hole] = 0;
+    }
+
+    private boolean nameEquals(int symbol, CharSequence text, int start, int end) {
+        int length = nameLengths[symbol];
+        if (length != end - start) return false;
+        int offset = nameStarts[symbol];
+        for (int i = 0; i < length; i++) {
+            if (arena[offset + i] != text.charAt(start + i)) return false;
+        }
+        return true;
+    }
+
+    private static int hash(CharSequence text, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + text.charAt(i);
+        }
+        // spread the bits so that linear probing on the low bits behaves
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+}
@@ -3,12 +3,21 @@ package com.model;
 public class Token {
     private String lexeme;
     private String type;
+    private TokenKind kind;
 
     public Token(String lexeme, String type) {
         this.lexeme = lexeme;
         this.type = type;
+        this.kind = TokenKind.fromLabel(type);
+    }
+
+    public Token(String lexeme, TokenKind kind) {
+        this.lexeme = lexeme;
+        this.type = kind.getLabel();
+        this.kind = kind;
     }
 
     public String getLexeme() { return lexeme; }
     public String getType() { return type; }
-}
\ No newline at end of file
+    public TokenKind getKind() { return kind; }
+}
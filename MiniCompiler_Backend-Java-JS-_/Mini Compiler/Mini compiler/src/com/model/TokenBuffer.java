@@ -0,0 +1,73 @@
+package com.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Struct-of-arrays token storage: one int kind code plus start/length offsets into the source
+ * per token. Lexemes are only materialized when asked for.
+ */
+public class TokenBuffer {
+    private final CharSequence source;
+    private int[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private int size;
+
+    public TokenBuffer(CharSequence source) {
+        this(source, 16);
+    }
+
+    public TokenBuffer(CharSequence source, int initialCapacity) {
+        this.source = source;
+        int capacity = Math.max(initialCapacity, 1);
+        kinds = new int[capacity];
+        starts = new int[capacity];
+        lengths = new int[capacity];
+    }
+
+    public void add(TokenKind kind, int start, int length) {
+        if (size == kinds.length) {
+            int capacity = size + (size >> 1) + 1;
+            kinds = Arrays.copyOf(kinds, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+        }
+        kinds[size] = kind.code();
+        starts[size] = start;
+        lengths[size] = length;
+        size++;
+    }
+
+    public int size() { return size; }
+    public CharSequence getSource() { return source; }
+    public int kind(int i) { return kinds[i]; }
+    public int start(int i) { return starts[i]; }
+    public int length(int i) { return lengths[i]; }
+
+    public boolean is(int i, TokenKind kind) {
+        return kinds[i] == kind.code();
+    }
+
+    public String lexeme(int i) {
+        return source.subSequence(starts[i], starts[i] + lengths[i]).toString();
+    }
+
+    public boolean lexemeEquals(int i, String text) {
+        int len = lengths[i];
+        if (len != text.length()) return false;
+        int start = starts[i];
+        for (int k = 0; k < len; k++) {
+            if (source.charAt(start + k) != text.charAt(k)) return false;
+        }
+        return true;
+    }
+
+    public ArrayList<Token> toTokens() {
+        ArrayList<Token> tokens = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            tokens.add(new Token(lexeme(i), TokenKind.fromCode(kinds[i])));
+        }
+        return tokens;
+    }
+}
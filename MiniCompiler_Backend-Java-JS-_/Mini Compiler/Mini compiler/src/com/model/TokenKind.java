@@ -0,0 +1,35 @@
+package com.model;
+
+public enum TokenKind {
+    DATA_TYPE("<data_type>"),
+    IDENTIFIER("<identifier>"),
+    ASSIGNMENT_OPERATOR("<assignment_operator>"),
+    VALUE("<value>"),
+    DELIMITER("<delimiter>"),
+    // arithmetic, comparison and logical operators and parentheses in initializers
+    OPERATOR("<operator>"),
+    UNKNOWN("<unknown>");
+
+    private static final TokenKind[] CODES = values();
+
+    private final String label;
+
+    TokenKind(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() { return label; }
+
+    public int code() { return ordinal(); }
+
+    public static TokenKind fromCode(int code) {
+        return CODES[code];
+    }
+
+    public static TokenKind fromLabel(String label) {
+        for (TokenKind kind : CODES) {
+            if (kind.label.equals(label)) return kind;
+        }
+        return null;
+    }
+}